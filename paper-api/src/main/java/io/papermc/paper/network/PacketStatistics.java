@@ -0,0 +1,75 @@
+package io.papermc.paper.network;
+
+import java.util.Map;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Unmodifiable;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Counters of the packets sent to and received from a player, or from all online players, by packet type.
+ * <p>
+ * Packet types are keyed by their protocol id, such as {@code minecraft:level_chunk_with_light}. Sizes are the encoded
+ * sizes of the packets, before compression and encryption. Rates are averaged over a rolling window of
+ * {@link #getWindowSeconds()} seconds, totals count every packet since the player connected.
+ * </p>
+ */
+@NullMarked
+@ApiStatus.NonExtendable
+public interface PacketStatistics {
+
+    /**
+     * Gets the length of the rolling window the rates are averaged over.
+     *
+     * @return the window length in seconds
+     */
+    int getWindowSeconds();
+
+    /**
+     * Gets a snapshot of the counters of the packets sent to the client, by packet type.
+     *
+     * @return the counters by packet type
+     */
+    @Unmodifiable Map<String, Counter> getSent();
+
+    /**
+     * Gets a snapshot of the counters of the packets received from the client, by packet type.
+     *
+     * @return the counters by packet type
+     */
+    @Unmodifiable Map<String, Counter> getReceived();
+
+    /**
+     * The counters of one packet type in one direction.
+     */
+    @ApiStatus.NonExtendable
+    interface Counter {
+
+        /**
+         * Gets the total number of packets.
+         *
+         * @return the number of packets
+         */
+        long getTotalPackets();
+
+        /**
+         * Gets the total number of bytes.
+         *
+         * @return the number of bytes
+         */
+        long getTotalBytes();
+
+        /**
+         * Gets the number of packets per second over the rolling window.
+         *
+         * @return the packets per second
+         */
+        double getPacketsPerSecond();
+
+        /**
+         * Gets the number of bytes per second over the rolling window.
+         *
+         * @return the bytes per second
+         */
+        double getBytesPerSecond();
+    }
+}
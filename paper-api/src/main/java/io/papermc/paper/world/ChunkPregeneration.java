@@ -0,0 +1,89 @@
+package io.papermc.paper.world;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.ApiStatus;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A running or finished pre-generation of the chunks of a world, started with
+ * {@link World#startChunkPregeneration(int, int, int)}.
+ * <p>
+ * Chunks are generated region by region, starting with the regions closest to the center. The progress is saved
+ * periodically and when the pre-generation is stopped, so that it can be resumed with
+ * {@link World#resumeChunkPregeneration()}, also after a restart.
+ * </p>
+ */
+@NullMarked
+@ApiStatus.NonExtendable
+public interface ChunkPregeneration {
+
+    /**
+     * Gets the world whose chunks are generated.
+     *
+     * @return the world
+     */
+    World getWorld();
+
+    /**
+     * Gets the x coordinate of the chunk at the center of the generated area.
+     *
+     * @return the center chunk x coordinate
+     */
+    int getCenterChunkX();
+
+    /**
+     * Gets the z coordinate of the chunk at the center of the generated area.
+     *
+     * @return the center chunk z coordinate
+     */
+    int getCenterChunkZ();
+
+    /**
+     * Gets the radius in chunks of the generated square area.
+     *
+     * @return the radius in chunks
+     */
+    int getRadius();
+
+    /**
+     * Gets the number of chunks in the generated area.
+     *
+     * @return the total number of chunks
+     */
+    long getTotalChunks();
+
+    /**
+     * Gets the number of chunks generated so far, including the chunks generated before the pre-generation
+     * was resumed.
+     *
+     * @return the number of generated chunks
+     */
+    long getGeneratedChunks();
+
+    /**
+     * Gets the average number of chunks generated per second over the last few seconds.
+     *
+     * @return the chunks generated per second
+     */
+    double getChunksPerSecond();
+
+    /**
+     * Checks whether this pre-generation is still generating chunks.
+     *
+     * @return whether this pre-generation is running
+     */
+    boolean isRunning();
+
+    /**
+     * Checks whether every chunk of the generated area was generated.
+     *
+     * @return whether this pre-generation is complete
+     */
+    boolean isComplete();
+
+    /**
+     * Stops this pre-generation after the chunks already being generated are done. The progress is kept, so that
+     * the pre-generation can be resumed with {@link World#resumeChunkPregeneration()}.
+     */
+    void stop();
+}
@@ -0,0 +1,95 @@
+package io.papermc.paper.world;
+
+import java.util.Map;
+import org.bukkit.World;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Unmodifiable;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Counters and latency histograms of the stages of the chunk system, such as reading chunk data from disk,
+ * converting it, generating each chunk status, lighting and saving.
+ * <p>
+ * Stages are shared by all worlds and are always recorded. Latencies are kept in histograms with power-of-two
+ * buckets, so percentiles are approximate.
+ * </p>
+ */
+@NullMarked
+@ApiStatus.NonExtendable
+public interface ChunkSystemMetrics {
+
+    /**
+     * Gets a snapshot of the metrics of every stage that ran at least once since the last reset, by stage name.
+     * Generation stages are named {@code generate/<status>}.
+     *
+     * @return the stage metrics by stage name
+     */
+    @Unmodifiable Map<String, Stage> getStages();
+
+    /**
+     * Gets the number of tasks waiting in or running on each executor of the chunk system of the specified world,
+     * by executor name.
+     *
+     * @param world the world
+     * @return the queued tasks by executor name
+     */
+    @Unmodifiable Map<String, Long> getQueueDepths(World world);
+
+    /**
+     * Gets a snapshot of the metrics of the Anti-Xray obfuscation of chunk packets in the specified world, since the
+     * last reset. Chunk packets are obfuscated off the main thread and are sent once obfuscated.
+     *
+     * @param world the world
+     * @return the obfuscation metrics, or {@code null} if Anti-Xray is disabled in the world
+     */
+    @Nullable Stage getAntiXrayObfuscation(World world);
+
+    /**
+     * Resets the metrics of every stage, including the Anti-Xray obfuscation of every world.
+     */
+    void reset();
+
+    /**
+     * A snapshot of the metrics of one stage.
+     */
+    @ApiStatus.NonExtendable
+    interface Stage {
+
+        /**
+         * Gets the number of times this stage completed since the last reset.
+         *
+         * @return the number of completions
+         */
+        long getCount();
+
+        /**
+         * Gets the number of completions per second since the last reset.
+         *
+         * @return the throughput per second
+         */
+        double getThroughput();
+
+        /**
+         * Gets the average latency in milliseconds.
+         *
+         * @return the average latency
+         */
+        double getAverageMillis();
+
+        /**
+         * Gets the maximum latency in milliseconds.
+         *
+         * @return the maximum latency
+         */
+        double getMaxMillis();
+
+        /**
+         * Gets the approximate latency in milliseconds below which the specified fraction of completions fall.
+         *
+         * @param percentile the fraction, in [0, 1]
+         * @return the approximate latency at the percentile
+         */
+        double getPercentileMillis(double percentile);
+    }
+}
@@ -2766,6 +2766,30 @@ public final class Bukkit {
         return server.getCurrentTick();
     }
 
+    // Paper start - chunk system metrics API
+    /**
+     * Gets the counters and latency histograms of the stages of the chunk system.
+     *
+     * @return the chunk system metrics
+     */
+    @NotNull
+    public static io.papermc.paper.world.ChunkSystemMetrics getChunkSystemMetrics() {
+        return server.getChunkSystemMetrics();
+    }
+    // Paper end - chunk system metrics API
+
+    // Paper start - packet statistics API
+    /**
+     * Gets the sum of the packet counters of all online players.
+     *
+     * @return the packet statistics of all online players
+     */
+    @NotNull
+    public static io.papermc.paper.network.PacketStatistics getPacketStatistics() {
+        return server.getPacketStatistics();
+    }
+    // Paper end - packet statistics API
+
     /**
      * Checks if the server is in the process of being shutdown.
      *
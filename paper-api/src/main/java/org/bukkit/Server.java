@@ -2463,6 +2463,26 @@ public interface Server extends PluginMessageRecipient, net.kyori.adventure.audi
      */
     int getCurrentTick();
 
+    // Paper start - chunk system metrics API
+    /**
+     * Gets the counters and latency histograms of the stages of the chunk system.
+     *
+     * @return the chunk system metrics
+     */
+    @NotNull
+    io.papermc.paper.world.ChunkSystemMetrics getChunkSystemMetrics();
+    // Paper end - chunk system metrics API
+
+    // Paper start - packet statistics API
+    /**
+     * Gets the sum of the packet counters of all online players.
+     *
+     * @return the packet statistics of all online players
+     */
+    @NotNull
+    io.papermc.paper.network.PacketStatistics getPacketStatistics();
+    // Paper end - packet statistics API
+
     /**
      * Checks if the server is in the process of being shutdown.
      *
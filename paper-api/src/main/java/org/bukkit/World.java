@@ -4312,6 +4312,40 @@ public interface World extends RegionAccessor, WorldInfo, PluginMessageRecipient
     void setSendViewDistance(int viewDistance);
     // Paper end - view distance api
 
+    // Paper start - chunk pre-generation API
+    /**
+     * Starts generating every chunk within the specified square radius around a chunk. Chunks are generated in
+     * the background, as fast as the chunk system allows without delaying chunk loads for players.
+     * <p>
+     * Starting a new pre-generation discards the saved progress of a previous one.
+     * </p>
+     *
+     * @param centerChunkX x coordinate of the chunk at the center
+     * @param centerChunkZ z coordinate of the chunk at the center
+     * @param radius radius of the generated area in chunks
+     * @return the started pre-generation, or {@code null} if this world is already being pre-generated
+     */
+    @Nullable
+    io.papermc.paper.world.ChunkPregeneration startChunkPregeneration(int centerChunkX, int centerChunkZ, int radius);
+
+    /**
+     * Resumes the previously stopped pre-generation of this world from its saved progress.
+     *
+     * @return the resumed pre-generation, or {@code null} if this world is already being pre-generated or there is
+     * no saved progress
+     */
+    @Nullable
+    io.papermc.paper.world.ChunkPregeneration resumeChunkPregeneration();
+
+    /**
+     * Gets the running pre-generation of this world.
+     *
+     * @return the running pre-generation, or {@code null} if this world is not being pre-generated
+     */
+    @Nullable
+    io.papermc.paper.world.ChunkPregeneration getChunkPregeneration();
+    // Paper end - chunk pre-generation API
+
     /**
      * Gets all generated structures that intersect the chunk at the given
      * coordinates. <br>
@@ -3912,4 +3912,13 @@ public interface Player extends HumanEntity, Conversable, OfflinePlayer, PluginM
      */
     void sendEntityEffect(org.bukkit.@NotNull EntityEffect effect, @NotNull Entity target);
     // Paper end - entity effect API
+
+    // Paper start - packet statistics API
+    /**
+     * Gets the counters of the packets sent to and received from this player since they connected.
+     *
+     * @return the packet statistics of this player
+     */
+    io.papermc.paper.network.@NotNull PacketStatistics getPacketStatistics();
+    // Paper end - packet statistics API
 }
@@ -145,6 +145,10 @@ dependencies {
         isTransitive = false
     }
     implementation("io.netty:netty-codec-haproxy:4.1.97.Final") // Add support for proxy protocol
+    implementation("io.netty.incubator:netty-incubator-transport-classes-io_uring:0.0.25.Final") // io_uring transport
+    runtimeOnly("io.netty.incubator:netty-incubator-transport-native-io_uring:0.0.25.Final:linux-x86_64")
+    runtimeOnly("io.netty.incubator:netty-incubator-transport-native-io_uring:0.0.25.Final:linux-aarch_64")
+    implementation("com.github.luben:zstd-jni:1.5.6-9") // Zstd region compression
     implementation("org.apache.logging.log4j:log4j-iostreams:2.24.1")
     implementation("org.ow2.asm:asm-commons:9.7.1")
     implementation("org.spongepowered:configurate-yaml:4.2.0-SNAPSHOT")
@@ -84,6 +84,13 @@ public interface PlatformHooks extends ChunkSystemHooks {
 
     public boolean configFixMC159283();
 
+    public boolean configCoalesceRegionFileWrites();
+
+    public boolean configPerWorldChunkExecutors();
+
+    // maximum number of worker threads used for generation in the specified world, or -1 if unlimited
+    public int configChunkGenerationThreads(final String worldName);
+
     // support for CB chunk mustNotSave
     public boolean forceNoSave(final ChunkAccess chunk);
 
@@ -4,6 +4,8 @@ import ca.spottedleaf.concurrentutil.executor.thread.PrioritisedThreadPool;
 import ca.spottedleaf.moonrise.common.PlatformHooks;
 import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -81,6 +83,39 @@ public final class MoonriseCommon {
     public static final PrioritisedThreadPool.ExecutorGroup CLIENT_PROFILER_IO_GROUP = IO_POOL.createExecutorGroup(CLIENT_DIVISION, 0);
     public static final PrioritisedThreadPool.ExecutorGroup SERVER_REGION_IO_GROUP = IO_POOL.createExecutorGroup(SERVER_DIVISION, 0);
 
+    // Paper start - Per-world chunk executors
+    public static record WorldExecutorGroups(PrioritisedThreadPool.ExecutorGroup parallelGen, PrioritisedThreadPool.ExecutorGroup radiusAware,
+                                             PrioritisedThreadPool.ExecutorGroup load, PrioritisedThreadPool.ExecutorGroup regionIO) {}
+
+    public static final WorldExecutorGroups SHARED_WORLD_GROUPS = new WorldExecutorGroups(
+            PARALLEL_GEN_GROUP, RADIUS_AWARE_GROUP, LOAD_GROUP, SERVER_REGION_IO_GROUP
+    );
+    // groups cannot be removed from the pools, so they are kept for worlds that are loaded again
+    private static final Map<String, WorldExecutorGroups> WORLD_GROUPS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the executor groups to use for the chunk system of the specified world. With per-world executors, the
+     * threads of the pools are shared fairly between the worlds, instead of between all tasks of all worlds.
+     */
+    public static WorldExecutorGroups getWorldExecutorGroups(final String worldName) {
+        if (!PlatformHooks.get().configPerWorldChunkExecutors()) {
+            return SHARED_WORLD_GROUPS;
+        }
+        return WORLD_GROUPS.computeIfAbsent(worldName, (final String keyInMap) -> {
+            return new WorldExecutorGroups(
+                    WORKER_POOL.createExecutorGroup(SERVER_DIVISION, 0),
+                    WORKER_POOL.createExecutorGroup(SERVER_DIVISION, 0),
+                    WORKER_POOL.createExecutorGroup(SERVER_DIVISION, 0),
+                    IO_POOL.createExecutorGroup(SERVER_DIVISION, 0)
+            );
+        });
+    }
+
+    public static Map<String, WorldExecutorGroups> getPerWorldExecutorGroups() {
+        return WORLD_GROUPS;
+    }
+    // Paper end - Per-world chunk executors
+
     public static void haltExecutors() {
         MoonriseCommon.WORKER_POOL.shutdown(false);
         LOGGER.info("Awaiting termination of worker pool for up to 60s...");
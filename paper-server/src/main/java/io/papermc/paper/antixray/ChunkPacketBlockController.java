@@ -42,4 +42,12 @@ public class ChunkPacketBlockController {
     public void onPlayerLeftClickBlock(ServerPlayerGameMode serverPlayerGameMode, BlockPos blockPos, ServerboundPlayerActionPacket.Action action, Direction direction, int worldHeight, int sequence) {
 
     }
+
+    public void onChunkSent(ServerPlayer player, LevelChunk chunk) {
+
+    }
+
+    public void onChunkUnwatched(LevelChunk chunk) {
+
+    }
 }
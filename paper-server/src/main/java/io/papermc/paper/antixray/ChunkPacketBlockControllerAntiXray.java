@@ -1,14 +1,25 @@
 package io.papermc.paper.antixray;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
 import io.papermc.paper.configuration.WorldConfiguration;
 import io.papermc.paper.configuration.type.EngineMode;
+import io.papermc.paper.world.PaperChunkSystemMetrics;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntSupplier;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -33,12 +44,23 @@ import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.chunk.MissingPaletteEntryException;
 import net.minecraft.world.level.chunk.Palette;
 import org.bukkit.Bukkit;
+import org.slf4j.Logger;
 
 public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockController {
 
     private static final Palette<BlockState> GLOBAL_BLOCKSTATE_PALETTE = new GlobalPalette<>(Block.BLOCK_STATE_REGISTRY);
     private static final LevelChunkSection EMPTY_SECTION = null;
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    // Obfuscations queued beyond this run on the executor of the world instead
+    private static final int MAX_QUEUED_OBFUSCATIONS = 1024;
+    // Shared by the controllers of all worlds, created on first use and resized when the config changes
+    private static volatile ThreadPoolExecutor obfuscationExecutor;
+    private static volatile int obfuscationThreads;
     private final Executor executor;
+    private final PaperChunkSystemMetrics.Timer obfuscationTimer = PaperChunkSystemMetrics.newTimer("anti-xray");
+    private final AtomicInteger queuedObfuscations = new AtomicInteger();
+    // Hidden blocks that were revealed to all players that have the chunk, by chunk key, only accessed on the main thread
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> revealedBlocks = new Long2ObjectOpenHashMap<>();
     private final EngineMode engineMode;
     private final int maxBlockHeight;
     private final int updateRadius;
@@ -143,6 +165,55 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
         maxBlockHeightUpdatePosition = maxBlockHeight + updateRadius - 1;
     }
 
+    private Executor getExecutor() {
+        int threads = GlobalConfiguration.get().misc.antiXrayThreads;
+
+        if (threads == 0) {
+            // Obfuscate on the executor of the world, as before
+            return executor;
+        }
+
+        if (threads < 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        }
+
+        ThreadPoolExecutor obfuscationExecutor = ChunkPacketBlockControllerAntiXray.obfuscationExecutor;
+        return obfuscationExecutor != null && obfuscationThreads == threads ? obfuscationExecutor : getObfuscationExecutor(threads);
+    }
+
+    private static synchronized ThreadPoolExecutor getObfuscationExecutor(int threads) {
+        if (obfuscationExecutor == null) {
+            obfuscationExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_OBFUSCATIONS),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("Paper Anti-Xray Thread #%d")
+                    .setDaemon(true)
+                    .setUncaughtExceptionHandler((thread, throwable) -> LOGGER.error("Uncaught exception in thread {}", thread.getName(), throwable))
+                    .build());
+            LOGGER.info("Using {} threads for Anti-Xray obfuscation", threads);
+        } else if (obfuscationThreads != threads) {
+            // The core pool size may never exceed the maximum pool size
+            if (threads > obfuscationExecutor.getMaximumPoolSize()) {
+                obfuscationExecutor.setMaximumPoolSize(threads);
+                obfuscationExecutor.setCorePoolSize(threads);
+            } else {
+                obfuscationExecutor.setCorePoolSize(threads);
+                obfuscationExecutor.setMaximumPoolSize(threads);
+            }
+            LOGGER.info("Using {} threads for Anti-Xray obfuscation", threads);
+        }
+
+        obfuscationThreads = threads;
+        return obfuscationExecutor;
+    }
+
+    public PaperChunkSystemMetrics.Timer getObfuscationTimer() {
+        return obfuscationTimer;
+    }
+
+    public int getQueuedObfuscations() {
+        return queuedObfuscations.get();
+    }
+
     private int getPresetBlockStatesFullLength() {
         return engineMode == EngineMode.HIDE ? 1 : presetBlockStatesFull.length;
     }
@@ -196,7 +267,33 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
         int z = chunk.getPos().z;
         Level level = chunk.getLevel();
         ((ChunkPacketInfoAntiXray) chunkPacketInfo).setNearbyChunks(level.getChunkIfLoaded(x - 1, z), level.getChunkIfLoaded(x + 1, z), level.getChunkIfLoaded(x, z - 1), level.getChunkIfLoaded(x, z + 1));
-        executor.execute((Runnable) chunkPacketInfo);
+        queuedObfuscations.incrementAndGet();
+
+        try {
+            Executor executor = getExecutor();
+
+            try {
+                executor.execute((Runnable) chunkPacketInfo);
+            } catch (RejectedExecutionException e) {
+                if (executor == this.executor) {
+                    throw e;
+                }
+
+                // The obfuscation threads are saturated
+                this.executor.execute((Runnable) chunkPacketInfo);
+            }
+        } catch (RuntimeException e) {
+            queuedObfuscations.decrementAndGet();
+            throw e;
+        }
+    }
+
+    void runObfuscation(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray) {
+        try {
+            obfuscate(chunkPacketInfoAntiXray);
+        } finally {
+            queuedObfuscations.decrementAndGet();
+        }
     }
 
     // Actually these fields should be variables inside the obfuscate method but in sync mode or with SingleThreadExecutor in async mode it's okay (even without ThreadLocal)
@@ -210,6 +307,7 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     private static final ThreadLocal<boolean[][]> NEXT_NEXT = ThreadLocal.withInitial(() -> new boolean[16][16]);
 
     public void obfuscate(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray) {
+        long start = System.nanoTime();
         int[] presetBlockStateBits = this.presetBlockStateBits.get();
         boolean[] solid = SOLID.get();
         boolean[] obfuscate = OBFUSCATE.get();
@@ -381,6 +479,7 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
             }
         }
 
+        obfuscationTimer.record(start);
         chunkPacketInfoAntiXray.getChunkPacket().setReady(true);
     }
 
@@ -620,6 +719,17 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
         }
     }
 
+    @Override
+    public void onChunkSent(ServerPlayer player, LevelChunk chunk) {
+        // The chunk packet obfuscates the blocks again, so they have to be revealed again
+        revealedBlocks.remove(chunk.getPos().toLong());
+    }
+
+    @Override
+    public void onChunkUnwatched(LevelChunk chunk) {
+        revealedBlocks.remove(chunk.getPos().toLong());
+    }
+
     private void updateNearbyBlocks(Level level, BlockPos blockPos) {
         if (updateRadius >= 2) {
             BlockPos temp = blockPos.west();
@@ -660,10 +770,30 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     }
 
     private void updateBlock(Level level, BlockPos blockPos) {
+        // Block changes from other threads are not tracked
+        boolean track = Bukkit.isPrimaryThread();
+        long chunkKey = ChunkPos.asLong(blockPos);
+        LongOpenHashSet revealed = track ? revealedBlocks.get(chunkKey) : null;
+
+        if (revealed != null && revealed.contains(blockPos.asLong())) {
+            // Already revealed, nothing to look up or send
+            return;
+        }
+
         BlockState blockState = level.getBlockStateIfLoaded(blockPos);
 
         if (blockState != null && obfuscateGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState)]) {
+            // The chunk holder collects the changes of a section and sends them at once at the end of the tick
             ((ServerLevel) level).getChunkSource().blockChanged(blockPos);
+
+            if (track) {
+                if (revealed == null) {
+                    revealed = new LongOpenHashSet();
+                    revealedBlocks.put(chunkKey, revealed);
+                }
+
+                revealed.add(blockPos.asLong());
+            }
         }
     }
 
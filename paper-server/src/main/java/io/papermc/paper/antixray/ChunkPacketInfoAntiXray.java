@@ -24,6 +24,6 @@ public final class ChunkPacketInfoAntiXray extends ChunkPacketInfo<BlockState> i
 
     @Override
     public void run() {
-        chunkPacketBlockControllerAntiXray.obfuscate(this);
+        chunkPacketBlockControllerAntiXray.runObfuscation(this);
     }
 }
@@ -43,6 +43,10 @@ public final class PaperCommand extends Command {
         commands.put(Set.of("dumpitem"), new DumpItemCommand());
         commands.put(Set.of("mobcaps", "playermobcaps"), new MobcapsCommand());
         commands.put(Set.of("dumplisteners"), new DumpListenersCommand());
+        commands.put(Set.of("optimizeregions"), new OptimizeRegionsCommand());
+        commands.put(Set.of("pregen"), new PregenCommand());
+        commands.put(Set.of("chunkmetrics"), new ChunkMetricsCommand());
+        commands.put(Set.of("packetstats"), new PacketStatsCommand());
         FeatureHooks.registerPaperCommands(commands);
 
         return commands.entrySet().stream()
@@ -0,0 +1,112 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.world.ChunkSystemMetrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.DARK_AQUA;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class ChunkMetricsCommand implements PaperSubcommand {
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        this.doMetrics(sender, args);
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            final List<String> options = new ArrayList<>();
+            options.add("reset");
+            options.add("*");
+            for (final World world : Bukkit.getWorlds()) {
+                options.add(world.getName());
+            }
+            return CommandUtil.getListMatchingLast(sender, args, options);
+        }
+        return Collections.emptyList();
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String formatStage(final ChunkSystemMetrics.Stage stage) {
+        return stage.getCount() + ", " + format(stage.getThroughput()) + "/s, " + format(stage.getAverageMillis()) + " / "
+            + format(stage.getPercentileMillis(0.5)) + " / " + format(stage.getPercentileMillis(0.99)) + " / "
+            + format(stage.getMaxMillis());
+    }
+
+    private void doMetrics(final CommandSender sender, final String[] args) {
+        final ChunkSystemMetrics metrics = Bukkit.getChunkSystemMetrics();
+        if (args.length >= 1 && args[0].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            sender.sendMessage(text("Reset chunk system metrics", GREEN));
+            return;
+        }
+
+        final List<World> worlds;
+        if (args.length == 0 || args[0].equals("*")) {
+            worlds = Bukkit.getWorlds();
+        } else {
+            final @Nullable World world = Bukkit.getWorld(args[0]);
+            if (world == null) {
+                sender.sendMessage(text("'" + args[0] + "' is not a valid world!", RED));
+                return;
+            }
+            worlds = List.of(world);
+        }
+
+        final Map<String, ChunkSystemMetrics.Stage> stages = metrics.getStages();
+        if (stages.isEmpty()) {
+            sender.sendMessage(text("No chunk system stage completed since the last reset", YELLOW));
+        } else {
+            sender.sendMessage(text("Chunk system stages (count, per second, avg / p50 / p99 / max ms):", YELLOW));
+            for (final Map.Entry<String, ChunkSystemMetrics.Stage> entry : stages.entrySet()) {
+                final ChunkSystemMetrics.Stage stage = entry.getValue();
+                sender.sendMessage(text().append(
+                    text(" " + entry.getKey() + ": ", DARK_AQUA),
+                    text(formatStage(stage))
+                ));
+            }
+        }
+
+        for (final World world : worlds) {
+            final StringBuilder queues = new StringBuilder();
+            for (final Map.Entry<String, Long> entry : metrics.getQueueDepths(world).entrySet()) {
+                if (!queues.isEmpty()) {
+                    queues.append(", ");
+                }
+                queues.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            sender.sendMessage(text().append(
+                text("Queued tasks in '" + world.getName() + "': ", YELLOW),
+                text(queues.toString())
+            ));
+
+            final ChunkSystemMetrics.@Nullable Stage antiXray = metrics.getAntiXrayObfuscation(world);
+            if (antiXray != null) {
+                sender.sendMessage(text().append(
+                    text("Anti-Xray in '" + world.getName() + "': ", YELLOW),
+                    text(formatStage(antiXray))
+                ));
+            }
+        }
+    }
+}
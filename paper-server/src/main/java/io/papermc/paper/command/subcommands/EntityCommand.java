@@ -147,6 +147,9 @@ public final class EntityCommand implements PaperSubcommand {
                 int count = info.stream().mapToInt(Pair::getRight).sum();
                 int nonTickingCount = nonEntityTicking.values().stream().mapToInt(Integer::intValue).sum();
                 sender.sendMessage("Total Ticking: " + (count - nonTickingCount) + ", Total Non-Ticking: " + nonTickingCount);
+                if (world.paperConfig().entities.graduatedTicking.enabled) {
+                    sender.sendMessage("Entity ticks deferred last tick: " + world.deferredEntityTicks);
+                }
                 info.forEach(e -> {
                     int nonTicking = nonEntityTicking.getOrDefault(e.getKey(), 0);
                     sender.sendMessage("  " + (e.getValue() - nonTicking) + " (" + nonTicking + ") " + ": " + e.getKey());
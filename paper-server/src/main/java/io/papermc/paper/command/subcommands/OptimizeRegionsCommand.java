@@ -0,0 +1,87 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.world.storage.RegionFileOptimizer;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class OptimizeRegionsCommand implements PaperSubcommand {
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        this.doOptimize(sender, args);
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, Bukkit.getWorlds().stream().map(World::getName).toList());
+        }
+        return Collections.emptyList();
+    }
+
+    private void doOptimize(final CommandSender sender, final String[] args) {
+        final @Nullable World world;
+        if (args.length == 0) {
+            if (!(sender instanceof Player player)) {
+                sender.sendMessage(text("Must specify a world! ex: '/paper optimizeregions world'", RED));
+                return;
+            }
+            world = player.getWorld();
+        } else {
+            world = Bukkit.getWorld(args[0]);
+            if (world == null) {
+                sender.sendMessage(text("'" + args[0] + "' is not a valid world!", RED));
+                return;
+            }
+        }
+
+        final ServerLevel level = ((CraftWorld) world).getHandle();
+        final @Nullable CompletableFuture<RegionFileOptimizer.Result> future;
+        try {
+            future = RegionFileOptimizer.optimize(level);
+        } catch (final IOException ex) {
+            MinecraftServer.LOGGER.error("Failed to list region files of world " + world.getName(), ex);
+            sender.sendMessage(text("Failed to list the region files of '" + world.getName() + "', check the console for details", RED));
+            return;
+        }
+
+        if (future == null) {
+            sender.sendMessage(text("Region files of '" + world.getName() + "' are already being optimized", RED));
+            return;
+        }
+
+        sender.sendMessage(text("Optimizing region files of '" + world.getName() + "' in the background", YELLOW));
+        future.whenComplete((result, throwable) -> MinecraftServer.getServer().scheduleOnMain(() -> {
+            if (throwable != null) {
+                MinecraftServer.LOGGER.error("Failed to optimize the region files of world " + world.getName(), throwable);
+                sender.sendMessage(text("Failed to optimize the region files of '" + world.getName() + "', check the console for details", RED));
+                return;
+            }
+            sender.sendMessage(text(
+                "Optimized " + result.regionFiles() + " region files of '" + world.getName() + "': rewrote "
+                    + result.chunksRewritten() + " chunks, saved " + (result.bytesSaved() / 1024L) + " KiB",
+                GREEN
+            ));
+        }));
+    }
+}
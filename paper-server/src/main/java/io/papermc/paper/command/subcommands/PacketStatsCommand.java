@@ -0,0 +1,109 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.network.PacketStatistics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.DARK_AQUA;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class PacketStatsCommand implements PaperSubcommand {
+    private static final int MAX_TYPES = 10;
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        this.doPacketStats(sender, args);
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            final List<String> options = new ArrayList<>();
+            for (final Player player : Bukkit.getOnlinePlayers()) {
+                options.add(player.getName());
+            }
+            return CommandUtil.getListMatchingLast(sender, args, options);
+        }
+        return Collections.emptyList();
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String formatBytes(final double bytes) {
+        if (bytes >= 1024.0 * 1024.0) {
+            return format(bytes / (1024.0 * 1024.0)) + " MiB";
+        }
+        if (bytes >= 1024.0) {
+            return format(bytes / 1024.0) + " KiB";
+        }
+        return format(bytes) + " B";
+    }
+
+    private void doPacketStats(final CommandSender sender, final String[] args) {
+        final PacketStatistics statistics;
+        final String target;
+        if (args.length == 0) {
+            statistics = Bukkit.getPacketStatistics();
+            target = "all players";
+        } else {
+            final @Nullable Player player = Bukkit.getPlayerExact(args[0]);
+            if (player == null) {
+                sender.sendMessage(text("'" + args[0] + "' is not an online player!", RED));
+                return;
+            }
+            statistics = player.getPacketStatistics();
+            target = player.getName();
+        }
+
+        sender.sendMessage(text("Packets of " + target + " (per second over " + statistics.getWindowSeconds() + "s, total):", YELLOW));
+        this.sendCounters(sender, "Sent", statistics.getSent());
+        this.sendCounters(sender, "Received", statistics.getReceived());
+    }
+
+    private void sendCounters(final CommandSender sender, final String direction, final Map<String, PacketStatistics.Counter> counters) {
+        if (counters.isEmpty()) {
+            sender.sendMessage(text(" " + direction + ": none", DARK_AQUA));
+            return;
+        }
+
+        final List<Map.Entry<String, PacketStatistics.Counter>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort(Comparator.comparingDouble((Map.Entry<String, PacketStatistics.Counter> entry) -> entry.getValue().getBytesPerSecond())
+            .thenComparingLong(entry -> entry.getValue().getTotalBytes()).reversed());
+
+        double packetsPerSecond = 0.0;
+        double bytesPerSecond = 0.0;
+        for (final Map.Entry<String, PacketStatistics.Counter> entry : entries) {
+            packetsPerSecond += entry.getValue().getPacketsPerSecond();
+            bytesPerSecond += entry.getValue().getBytesPerSecond();
+        }
+        sender.sendMessage(text(" " + direction + ": " + format(packetsPerSecond) + " packets/s, " + formatBytes(bytesPerSecond) + "/s", DARK_AQUA));
+
+        for (int i = 0, len = Math.min(entries.size(), MAX_TYPES); i < len; ++i) {
+            final Map.Entry<String, PacketStatistics.Counter> entry = entries.get(i);
+            final PacketStatistics.Counter counter = entry.getValue();
+            sender.sendMessage(text().append(
+                text("  " + entry.getKey() + ": ", DARK_AQUA),
+                text(format(counter.getPacketsPerSecond()) + "/s, " + formatBytes(counter.getBytesPerSecond()) + "/s, "
+                    + counter.getTotalPackets() + " / " + formatBytes(counter.getTotalBytes()))
+            ));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.world.ChunkPregeneration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class PregenCommand implements PaperSubcommand {
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        this.doPregen(sender, args);
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "start", "stop", "resume", "status");
+        } else if (args.length == 2) {
+            return CommandUtil.getListMatchingLast(sender, args, Bukkit.getWorlds().stream().map(World::getName).toList());
+        }
+        return Collections.emptyList();
+    }
+
+    private void doPregen(final CommandSender sender, final String[] args) {
+        if (args.length < 1) {
+            sender.sendMessage(text("Use /paper pregen [start|stop|resume|status] [world]", RED));
+            return;
+        }
+
+        final @Nullable World world = this.getWorld(sender, args);
+        if (world == null) {
+            return;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "start" -> this.doStart(sender, world, args);
+            case "stop" -> {
+                final @Nullable ChunkPregeneration pregeneration = world.getChunkPregeneration();
+                if (pregeneration == null) {
+                    sender.sendMessage(text("'" + world.getName() + "' is not being pre-generated", RED));
+                    return;
+                }
+                pregeneration.stop();
+                sender.sendMessage(text("Stopping pre-generation of '" + world.getName() + "', use '/paper pregen resume " + world.getName() + "' to continue", YELLOW));
+            }
+            case "resume" -> {
+                final @Nullable ChunkPregeneration pregeneration = world.resumeChunkPregeneration();
+                if (pregeneration == null) {
+                    sender.sendMessage(text("'" + world.getName() + "' is already being pre-generated or has no pre-generation to resume", RED));
+                    return;
+                }
+                sender.sendMessage(text("Resumed pre-generation of '" + world.getName() + "' at " + pregeneration.getGeneratedChunks() + "/" + pregeneration.getTotalChunks() + " chunks", GREEN));
+            }
+            case "status" -> {
+                final @Nullable ChunkPregeneration pregeneration = world.getChunkPregeneration();
+                if (pregeneration == null) {
+                    sender.sendMessage(text("'" + world.getName() + "' is not being pre-generated", YELLOW));
+                    return;
+                }
+                sender.sendMessage(text(
+                    "Pre-generation of '" + world.getName() + "': " + pregeneration.getGeneratedChunks() + "/" + pregeneration.getTotalChunks()
+                        + " chunks (" + String.format(Locale.ROOT, "%.1f", 100.0 * pregeneration.getGeneratedChunks() / pregeneration.getTotalChunks())
+                        + "%), " + String.format(Locale.ROOT, "%.1f", pregeneration.getChunksPerSecond()) + " chunks/s",
+                    GREEN
+                ));
+            }
+            default -> sender.sendMessage(text("Use /paper pregen [start|stop|resume|status] [world]", RED));
+        }
+    }
+
+    private @Nullable World getWorld(final CommandSender sender, final String[] args) {
+        if (args.length < 2) {
+            if (!(sender instanceof Player player)) {
+                sender.sendMessage(text("Must specify a world! ex: '/paper pregen " + args[0] + " world'", RED));
+                return null;
+            }
+            return player.getWorld();
+        }
+
+        final @Nullable World world = Bukkit.getWorld(args[1]);
+        if (world == null) {
+            sender.sendMessage(text("'" + args[1] + "' is not a valid world!", RED));
+        }
+        return world;
+    }
+
+    private void doStart(final CommandSender sender, final World world, final String[] args) {
+        if (args.length != 3 && args.length != 5) {
+            sender.sendMessage(text("Use /paper pregen start <world> <radius> [centerChunkX centerChunkZ] to generate every chunk within a radius in chunks, by default around the spawn chunk", RED));
+            return;
+        }
+
+        final int radius;
+        final int centerX;
+        final int centerZ;
+        try {
+            radius = Integer.parseInt(args[2]);
+            if (args.length == 5) {
+                centerX = Integer.parseInt(args[3]);
+                centerZ = Integer.parseInt(args[4]);
+            } else {
+                final Location spawn = world.getSpawnLocation();
+                centerX = spawn.getBlockX() >> 4;
+                centerZ = spawn.getBlockZ() >> 4;
+            }
+        } catch (final NumberFormatException ex) {
+            sender.sendMessage(text("Radius and center must be whole numbers", RED));
+            return;
+        }
+        if (radius < 0) {
+            sender.sendMessage(text("Radius must be at least 0", RED));
+            return;
+        }
+
+        final @Nullable ChunkPregeneration pregeneration = world.startChunkPregeneration(centerX, centerZ, radius);
+        if (pregeneration == null) {
+            sender.sendMessage(text("'" + world.getName() + "' is already being pre-generated", RED));
+            return;
+        }
+        sender.sendMessage(text(
+            "Pre-generating " + pregeneration.getTotalChunks() + " chunks of '" + world.getName() + "' around chunk (" + centerX + ", " + centerZ
+                + "), use '/paper pregen status " + world.getName() + "' to show the progress",
+            GREEN
+        ));
+    }
+}
@@ -24,7 +24,7 @@ import java.util.OptionalInt;
 @SuppressWarnings({"CanBeFinal", "FieldCanBeLocal", "FieldMayBeFinal", "NotNullFieldNotInitialized", "InnerClassMayBeStatic"})
 public class GlobalConfiguration extends ConfigurationPart {
     private static final Logger LOGGER = LogUtils.getLogger();
-    static final int CURRENT_VERSION = 29; // (when you change the version, change the comment, so it conflicts on rebases): <insert changes here>
+    static final int CURRENT_VERSION = 30; // (when you change the version, change the comment, so it conflicts on rebases): migrate region file cache size
     private static GlobalConfiguration instance;
     public static boolean isFirstStart = false;
     public static GlobalConfiguration get() {
@@ -37,6 +37,15 @@ public class GlobalConfiguration extends ConfigurationPart {
         @Comment("The maximum rate in chunks per second that the server will send to any individual player. Set to -1 to disable this limit.")
         public double playerMaxChunkSendRate = 75.0;
 
+        @Comment(
+            "Whether to adapt the chunk send rate of each player to how fast their connection and client take chunks, between " +
+            "player-min-chunk-send-rate and player-max-chunk-send-rate. Chunks are then sent in batches that the client acknowledges."
+        )
+        public boolean adaptiveChunkSendRate = false;
+
+        @Comment("The minimum rate in chunks per second that the adaptive chunk send rate lowers the send rate of a player to.")
+        public double playerMinChunkSendRate = 10.0;
+
         @Comment(
             "The maximum rate at which chunks will load for any individual player. " +
             "Note that this setting also affects chunk generations, since a chunk load is always first issued to test if a" +
@@ -177,11 +186,17 @@ public class GlobalConfiguration extends ConfigurationPart {
         public boolean skipVanillaDamageTickWhenShieldBlocked = false;
         @Comment("This setting controls what compression format is used for region files.")
         public CompressionFormat compressionFormat = CompressionFormat.ZLIB;
+        @Comment("The compression level used for region files when compression-format is ZSTD. Higher levels produce smaller files but take longer to write.")
+        public int zstdCompressionLevel = 3;
+        @Comment("Whether to train a zstd dictionary for each region folder when compression-format is ZSTD. The dictionary is stored next to the folder, and must be kept for as long as chunks written with it exist.")
+        public boolean zstdTrainDictionaries = false;
 
         public enum CompressionFormat {
             GZIP,
             ZLIB,
-            NONE
+            NONE,
+            LZ4,
+            ZSTD
         }
     }
 
@@ -214,6 +229,28 @@ public class GlobalConfiguration extends ConfigurationPart {
         public int ioThreads = -1;
         public int workerThreads = -1;
         public String genParallelism = "default";
+        @Comment("Whether open region files should be memory-mapped for reading chunks, which avoids a read system call and a copy of the data for every chunk read. Not used on Windows. Only applies to region files opened after changing this.")
+        public boolean memoryMappedRegionReads = false;
+        @Comment("Whether chunk writes queued for the same region file should be written together, with a single update of the region file header. This reduces the amount of disk operations during saves of large worlds.")
+        public boolean coalesceRegionFileWrites = false;
+        @Comment("Whether the data of the chunks kept loaded by spawn, forced and plugin tickets should be written to a snapshot file when a world is closed, so that these chunks can be loaded without reading their region files on the next startup. The snapshot is limited to 64MiB of chunk data, and the data of chunks not loaded within five minutes of startup is dropped.")
+        public boolean warmChunkSnapshot = false;
+
+        public RegionFileCache regionFileCache;
+
+        public class RegionFileCache extends ConfigurationPart {
+            @Comment("The maximum amount of region files kept open across all worlds. Set to -1 to use a quarter of the file descriptor limit of the server process, up to 4096. Each region storage may keep a few region files open beyond this, and region files in use are never closed.")
+            public int maxOpenFiles = -1;
+        }
+
+        public WorldExecutors worldExecutors;
+
+        public class WorldExecutors extends ConfigurationPart {
+            @Comment("Whether each world should use its own executors for chunk generation, loading and I/O. Worker and I/O threads are then shared fairly between the worlds with pending chunk tasks, so that generating chunks in one world does not delay chunk loading in another. Only applies to worlds loaded after changing this.")
+            public boolean enabled = false;
+            @Comment("The maximum number of worker threads used for chunk generation, by world name. The quota is split between parallel and radius-aware generation, each of which keeps at least one thread. Unlike the shared executors, which do not limit radius-aware generation with parallel generation enabled, it is capped at half of the quota. Worlds that are not listed may use all worker threads. Requires enabled to be true.")
+            public Map<String, Integer> generationThreads = new java.util.HashMap<>();
+        }
 
         @PostProcess
         private void postProcess() {
@@ -335,8 +372,6 @@ public class GlobalConfiguration extends ConfigurationPart {
         public int maxJoinsPerTick = 5;
         public boolean fixEntityPositionDesync = true;
         public boolean loadPermissionsYmlBeforePlugins = true;
-        @Constraints.Min(4)
-        public int regionFileCacheSize = 256;
         @Comment("See https://luckformula.emc.gs")
         public boolean useAlternativeLuckFormula = false;
         public boolean useDimensionTypeForCustomSpawners = false;
@@ -344,6 +379,25 @@ public class GlobalConfiguration extends ConfigurationPart {
         public IntOr.Default compressionLevel = IntOr.Default.USE_DEFAULT;
         @Comment("Defines the leniency distance added on the server to the interaction range of a player when validating interact packets.")
         public DoubleOr.Default clientInteractionLeniencyDistance = DoubleOr.Default.USE_DEFAULT;
+        public PacketBatching packetBatching;
+        public class PacketBatching extends ConfigurationPart {
+            @Comment("Whether to collect the packets sent to a player during a tick and hand them to the network thread at once at the end of the tick, instead of one by one.")
+            public boolean enabled = false;
+            @Comment("Whether to wrap the collected packets into bundle packets, so that the client applies the packets of a tick together.")
+            public boolean useBundlePacket = false;
+        }
+        @Comment("Whether to use the io_uring transport instead of epoll on Linux. Requires use-native-transport in server.properties, falls back to the next available transport when the kernel does not support io_uring.")
+        public boolean useIoUring = false;
+        @Comment("The number of threads obfuscating chunk packets for Anti-Xray, shared by all worlds. 0 obfuscates on the shared worker threads of the server, -1 uses a quarter of the available processors, at least 1. Chunk packets queued beyond the capacity of these threads are obfuscated on the shared worker threads.")
+        public int antiXrayThreads = 0;
+        @Comment("Whether to hold back chunk and light data while the connection of a player is congested, so that movement, combat and keep-alive packets are not delayed behind it.")
+        public boolean prioritizeGameplayPackets = false;
+        @Comment("The number of threads gathering the block collisions of items and experience orbs ahead of the entity tick, in addition to the main thread. 0 disables gathering ahead.")
+        public int collisionPrefetchThreads = 0;
+        @Comment("Whether to encode entity tracker packets sent to several players only once and reuse the bytes for every player. Disable if a plugin modifies such packets in place for single players.")
+        public boolean sharedPacketEncoding = false;
+        @Comment("Whether to build the chunk packet of a chunk once per tick and send it to every player receiving the chunk in that tick. Disable if a plugin modifies chunk packets in place for single players.")
+        public boolean sharedChunkPackets = false;
     }
 
     public BlockUpdates blockUpdates;
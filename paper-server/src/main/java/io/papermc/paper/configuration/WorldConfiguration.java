@@ -3,6 +3,7 @@ package io.papermc.paper.configuration;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.constraint.Constraints;
 import io.papermc.paper.configuration.legacy.MaxEntityCollisionsInitializer;
 import io.papermc.paper.configuration.legacy.RequiresSpigotInitialization;
 import io.papermc.paper.configuration.mapping.MergeMap;
@@ -167,6 +168,24 @@ public class WorldConfiguration extends ConfigurationPart {
             public boolean tick = true;
         }
 
+        public GraduatedTicking graduatedTicking;
+
+        public class GraduatedTicking extends ConfigurationPart {
+            @Comment("Ticks inactive entities far away from every player only every few ticks, staggered by entity id.")
+            public boolean enabled = false;
+            @Comment("Tick interval of inactive entities without a player within 10 chunks.")
+            @Constraints.Min(1)
+            public int farTickInterval = 4;
+            @Comment("Tick interval of inactive entities without a player within the maximum view distance.")
+            @Constraints.Min(1)
+            public int distantTickInterval = 8;
+            @Comment("Average tick time in milliseconds above which the intervals grow with the tick time, up to the max tick interval.")
+            public double targetMspt = 40.0;
+            @Comment("The largest tick interval the far and distant tick intervals grow to while the average tick time is above the target.")
+            @Constraints.Min(1)
+            public int maxTickInterval = 20;
+        }
+
         public Sniffer sniffer;
 
         public class Sniffer extends ConfigurationPart {
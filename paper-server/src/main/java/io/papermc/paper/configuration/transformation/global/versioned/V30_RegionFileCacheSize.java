@@ -0,0 +1,40 @@
+package io.papermc.paper.configuration.transformation.global.versioned;
+
+import org.jspecify.annotations.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.NodePath;
+import org.spongepowered.configurate.transformation.ConfigurationTransformation;
+import org.spongepowered.configurate.transformation.TransformAction;
+
+import static org.spongepowered.configurate.NodePath.path;
+
+/**
+ * The per storage {@code region-file-cache-size} was replaced by a limit on the region files open across all
+ * storages. A changed size is kept as that limit, the default size is dropped in favour of the automatic limit.
+ */
+public final class V30_RegionFileCacheSize implements TransformAction {
+
+    private static final int VERSION = 30;
+    private static final NodePath OLD_PATH = path("misc", "region-file-cache-size");
+    private static final Object[] NEW_PATH = {"chunk-system", "region-file-cache", "max-open-files"};
+    private static final int OLD_DEFAULT = 256;
+    private static final V30_RegionFileCacheSize INSTANCE = new V30_RegionFileCacheSize();
+
+    private V30_RegionFileCacheSize() {
+    }
+
+    public static void apply(final ConfigurationTransformation.VersionedBuilder builder) {
+        builder.addVersion(VERSION, ConfigurationTransformation.builder().addAction(OLD_PATH, INSTANCE).build());
+    }
+
+    @Override
+    public Object @Nullable [] visitPath(final NodePath path, final ConfigurationNode value) throws ConfigurateException {
+        if (value.getInt(OLD_DEFAULT) == OLD_DEFAULT) {
+            value.raw(null);
+            return null;
+        }
+
+        return NEW_PATH;
+    }
+}
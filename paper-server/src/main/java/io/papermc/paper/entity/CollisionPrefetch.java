@@ -0,0 +1,361 @@
+package io.papermc.paper.entity;
+
+import ca.spottedleaf.moonrise.common.list.ReferenceList;
+import ca.spottedleaf.moonrise.common.util.WorldUtil;
+import ca.spottedleaf.moonrise.patches.block_counting.BlockCountingChunkSection;
+import ca.spottedleaf.moonrise.patches.chunk_system.entity.ChunkSystemEntity;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.ChunkSystemLevel;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.ChunkSystemServerLevel;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.entity.server.ServerEntityLookup;
+import ca.spottedleaf.moonrise.patches.collisions.CollisionUtil;
+import ca.spottedleaf.moonrise.patches.collisions.block.CollisionBlockState;
+import ca.spottedleaf.moonrise.patches.collisions.shape.CollisionVoxelShape;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.entity.activation.ActivationRange;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.FullChunkStatus;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.ExperienceOrb;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.border.WorldBorder;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.phys.shapes.VoxelShape;
+import org.slf4j.Logger;
+
+/**
+ * Block collisions of an entity gathered ahead of the entity tick.
+ * <p>
+ * Before the entities of a world are ticked, the block collisions around the predicted movement of items and
+ * experience orbs are gathered in parallel. When the entity moves during its tick, the gathered collisions are used
+ * instead of looking up the blocks again, provided that no block in the chunks of the gathered area changed in between
+ * and that the movement stays inside the gathered area. Entities which are not expected to move this tick, such as
+ * inactive or resting entities, are skipped. Otherwise the collisions are looked up as usual, so the outcome of the
+ * movement does not depend on whether or when collisions were gathered. Only blocks whose collision shape does not
+ * depend on the world or the entity are gathered, entities near other blocks are left to the tick.
+ * </p>
+ * <p>
+ * The main thread gathers collisions as well and only waits shortly for the other threads afterwards. Entities whose
+ * collisions are not gathered by then look up their collisions during the tick, and collisions gathered late are
+ * discarded by the same block change check.
+ * </p>
+ */
+public final class CollisionPrefetch {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    // entities gathered per task, and the least number of entities worth gathering for
+    private static final int BATCH_SIZE = 64;
+    // distance the gathered area extends past the predicted movement, covering changes to the movement during the tick
+    private static final double MARGIN = 0.5;
+    // longest time the main thread waits for the other threads once it gathered its share of the collisions
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(5L);
+    // only used on the main thread
+    private static final List<Entity> CANDIDATES = new ArrayList<>();
+    private static ThreadPoolExecutor executor;
+
+    private final Level world;
+    private final int tick;
+    private final long blockChangeCount;
+    private final AABB box;
+    private final List<VoxelShape> voxels;
+    private final List<AABB> boxes;
+
+    private CollisionPrefetch(final Level world, final int tick, final long blockChangeCount, final AABB box,
+                              final List<VoxelShape> voxels, final List<AABB> boxes) {
+        this.world = world;
+        this.tick = tick;
+        this.blockChangeCount = blockChangeCount;
+        this.box = box;
+        this.voxels = voxels;
+        this.boxes = boxes;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor(final int threads) {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("Paper Collision Thread #%d")
+                    .setDaemon(true)
+                    .setUncaughtExceptionHandler((thread, throwable) -> LOGGER.error("Uncaught exception in thread {}", thread.getName(), throwable))
+                    .build());
+            LOGGER.info("Using {} threads for gathering entity collisions", threads);
+        }
+        return executor;
+    }
+
+    private static boolean isCandidate(final Entity entity) {
+        return (entity instanceof ItemEntity || entity instanceof ExperienceOrb) && !entity.isRemoved() && !entity.noPhysics
+            && !entity.isPassenger() && !entity.isVehicle()
+            && ((ChunkSystemEntity)entity).moonrise$getChunkStatus().isOrAfter(FullChunkStatus.ENTITY_TICKING)
+            && ActivationRange.mayTick(entity) && willMove(entity);
+    }
+
+    // see ItemEntity#tick, resting items only move every 4th tick. The tick count is incremented before the tick
+    private static boolean willMove(final Entity entity) {
+        return !(entity instanceof ItemEntity) || !entity.onGround() || entity.getDeltaMovement().horizontalDistanceSqr() > 1.0E-5F
+            || (entity.tickCount + 1 + entity.getId()) % 4 == 0;
+    }
+
+    /**
+     * Gathers the block collisions of the items and experience orbs of the specified world, using the configured
+     * number of threads in addition to the main thread. Waits at most a few milliseconds for the other threads.
+     */
+    public static void prefetch(final ServerLevel world) {
+        final int threads = GlobalConfiguration.get().misc.collisionPrefetchThreads;
+        if (threads <= 0) {
+            return;
+        }
+
+        final ReferenceList<Entity> entities = ((ServerEntityLookup)((ChunkSystemServerLevel)world).moonrise$getEntityLookup()).trackerEntities;
+        final Entity[] entitiesRaw = entities.getRawDataUnchecked();
+        for (int i = 0, len = entities.size(); i < len; ++i) {
+            final Entity entity = entitiesRaw[i];
+            if (isCandidate(entity)) {
+                CANDIDATES.add(entity);
+            }
+        }
+
+        final int size = CANDIDATES.size();
+        if (size < BATCH_SIZE) {
+            CANDIDATES.clear();
+            return;
+        }
+
+        // the other threads may still gather after the main thread stopped waiting for them
+        final Entity[] candidates = CANDIDATES.toArray(new Entity[0]);
+        CANDIDATES.clear();
+
+        final int tick = MinecraftServer.currentTick;
+        final long blockChangeCount = world.blockChangeCount;
+        final AtomicInteger next = new AtomicInteger();
+        final Runnable work = () -> {
+            int start;
+            while ((start = next.getAndAdd(BATCH_SIZE)) < size) {
+                for (int i = start, end = Math.min(size, start + BATCH_SIZE); i < end; ++i) {
+                    final Entity entity = candidates[i];
+                    try {
+                        prefetch(world, entity, tick, blockChangeCount);
+                    } catch (final Throwable throwable) {
+                        LOGGER.error("Failed to gather the collisions of entity {}", entity, throwable);
+                    }
+                }
+            }
+        };
+
+        final int tasks = Math.min(threads, (size - 1) / BATCH_SIZE);
+        final CountDownLatch done = new CountDownLatch(tasks);
+        final ThreadPoolExecutor executor = getExecutor(threads);
+        for (int i = 0; i < tasks; ++i) {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        work.run();
+
+        try {
+            if (!done.await(MAX_WAIT_NANOS, TimeUnit.NANOSECONDS)) {
+                // stop the other threads from claiming more entities, the remaining ones look up their collisions in the tick
+                next.set(size);
+            }
+        } catch (final InterruptedException ex) {
+            next.set(size);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void prefetch(final ServerLevel world, final Entity entity, final int tick, final long blockChangeCount) {
+        final Vec3 movement = entity.getDeltaMovement();
+        final AABB box = entity.getBoundingBox().expandTowards(movement.x, movement.y - entity.getGravity(), movement.z).inflate(MARGIN);
+        final List<VoxelShape> voxels = new ArrayList<>();
+        final List<AABB> boxes = new ArrayList<>();
+        entity.collisionPrefetch = getConstantBlockCollisions(world, box, voxels, boxes)
+            ? new CollisionPrefetch(world, tick, blockChangeCount, box, voxels, boxes) : null;
+    }
+
+    /**
+     * Adds the block and world border collisions gathered for the specified entity inside the specified box to the
+     * specified lists. The gathered collisions are used at most once.
+     *
+     * @return whether collisions were gathered for the box, if not the collisions must be looked up as usual
+     */
+    public static boolean collect(final Entity entity, final AABB box, final List<VoxelShape> intoVoxel, final List<AABB> intoAABB) {
+        final CollisionPrefetch prefetch = entity.collisionPrefetch;
+        if (prefetch == null) {
+            return false;
+        }
+        entity.collisionPrefetch = null;
+
+        final Level world = entity.level();
+        if (prefetch.world != world || prefetch.tick != MinecraftServer.currentTick
+            || (prefetch.blockChangeCount != world.blockChangeCount && prefetch.blocksChanged())
+            || box.minX < prefetch.box.minX || box.minY < prefetch.box.minY || box.minZ < prefetch.box.minZ
+            || box.maxX > prefetch.box.maxX || box.maxY > prefetch.box.maxY || box.maxZ > prefetch.box.maxZ) {
+            return false;
+        }
+
+        // the world border may move during the tick, so it is not gathered ahead
+        final WorldBorder worldBorder = world.getWorldBorder();
+        if (CollisionUtil.isCollidingWithBorder(worldBorder, box) && worldBorder.isInsideCloseToBorder(entity, box)) {
+            intoVoxel.add(worldBorder.getCollisionShape());
+        }
+        intoVoxel.addAll(prefetch.voxels);
+        intoAABB.addAll(prefetch.boxes);
+        return true;
+    }
+
+    // whether a block in one of the chunks of the gathered area changed since the collisions were gathered
+    private boolean blocksChanged() {
+        final int minChunkX = (Mth.floor(this.box.minX - CollisionUtil.COLLISION_EPSILON) - 1) >> 4;
+        final int maxChunkX = (Mth.floor(this.box.maxX + CollisionUtil.COLLISION_EPSILON) + 1) >> 4;
+        final int minChunkZ = (Mth.floor(this.box.minZ - CollisionUtil.COLLISION_EPSILON) - 1) >> 4;
+        final int maxChunkZ = (Mth.floor(this.box.maxZ + CollisionUtil.COLLISION_EPSILON) + 1) >> 4;
+
+        for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+                final LevelChunk chunk = ((ChunkSystemLevel)this.world).moonrise$getFullChunkIfLoaded(chunkX, chunkZ);
+                if (chunk == null || chunk.lastBlockChange > this.blockChangeCount) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // same iteration as CollisionUtil#getCollisionsForBlocksOrWorldBorder, but safe to use off the main thread
+    private static boolean getConstantBlockCollisions(final Level world, final AABB aabb, final List<VoxelShape> intoVoxel, final List<AABB> intoAABB) {
+        final int minSection = WorldUtil.getMinSection(world);
+
+        final int minBlockX = Mth.floor(aabb.minX - CollisionUtil.COLLISION_EPSILON) - 1;
+        final int maxBlockX = Mth.floor(aabb.maxX + CollisionUtil.COLLISION_EPSILON) + 1;
+
+        final int minBlockY = Math.max((minSection << 4) - 1, Mth.floor(aabb.minY - CollisionUtil.COLLISION_EPSILON) - 1);
+        final int maxBlockY = Math.min((WorldUtil.getMaxSection(world) << 4) + 16, Mth.floor(aabb.maxY + CollisionUtil.COLLISION_EPSILON) + 1);
+
+        final int minBlockZ = Mth.floor(aabb.minZ - CollisionUtil.COLLISION_EPSILON) - 1;
+        final int maxBlockZ = Mth.floor(aabb.maxZ + CollisionUtil.COLLISION_EPSILON) + 1;
+
+        if (minBlockY > maxBlockY) {
+            return true;
+        }
+
+        final int minChunkX = minBlockX >> 4;
+        final int maxChunkX = maxBlockX >> 4;
+
+        final int minChunkY = minBlockY >> 4;
+        final int maxChunkY = maxBlockY >> 4;
+
+        final int minChunkZ = minBlockZ >> 4;
+        final int maxChunkZ = maxBlockZ >> 4;
+
+        for (int currChunkZ = minChunkZ; currChunkZ <= maxChunkZ; ++currChunkZ) {
+            for (int currChunkX = minChunkX; currChunkX <= maxChunkX; ++currChunkX) {
+                // the chunk source may only be used on the main thread
+                final LevelChunk chunk = ((ChunkSystemLevel)world).moonrise$getFullChunkIfLoaded(currChunkX, currChunkZ);
+                if (chunk == null) {
+                    // the chunk may be loaded before the entity moves
+                    return false;
+                }
+
+                final LevelChunkSection[] sections = chunk.getSections();
+
+                for (int currChunkY = minChunkY; currChunkY <= maxChunkY; ++currChunkY) {
+                    final int sectionIdx = currChunkY - minSection;
+                    if (sectionIdx < 0 || sectionIdx >= sections.length) {
+                        continue;
+                    }
+                    final LevelChunkSection section = sections[sectionIdx];
+                    if (section.hasOnlyAir()) {
+                        continue;
+                    }
+
+                    final boolean hasSpecial = ((BlockCountingChunkSection)section).moonrise$hasSpecialCollidingBlocks();
+                    final int sectionAdjust = !hasSpecial ? 1 : 0;
+
+                    final PalettedContainer<BlockState> blocks = section.states;
+
+                    final int minXIterate = currChunkX == minChunkX ? (minBlockX & 15) + sectionAdjust : 0;
+                    final int maxXIterate = currChunkX == maxChunkX ? (maxBlockX & 15) - sectionAdjust : 15;
+                    final int minZIterate = currChunkZ == minChunkZ ? (minBlockZ & 15) + sectionAdjust : 0;
+                    final int maxZIterate = currChunkZ == maxChunkZ ? (maxBlockZ & 15) - sectionAdjust : 15;
+                    final int minYIterate = currChunkY == minChunkY ? (minBlockY & 15) + sectionAdjust : 0;
+                    final int maxYIterate = currChunkY == maxChunkY ? (maxBlockY & 15) - sectionAdjust : 15;
+
+                    for (int currY = minYIterate; currY <= maxYIterate; ++currY) {
+                        final int blockY = currY | (currChunkY << 4);
+                        for (int currZ = minZIterate; currZ <= maxZIterate; ++currZ) {
+                            final int blockZ = currZ | (currChunkZ << 4);
+                            for (int currX = minXIterate; currX <= maxXIterate; ++currX) {
+                                final int localBlockIndex = (currX) | (currZ << 4) | ((currY) << 8);
+                                final int blockX = currX | (currChunkX << 4);
+
+                                final int edgeCount = hasSpecial ? ((blockX == minBlockX || blockX == maxBlockX) ? 1 : 0) +
+                                    ((blockY == minBlockY || blockY == maxBlockY) ? 1 : 0) +
+                                    ((blockZ == minBlockZ || blockZ == maxBlockZ) ? 1 : 0) : 0;
+                                if (edgeCount == 3) {
+                                    continue;
+                                }
+
+                                final BlockState blockData = blocks.get(localBlockIndex);
+
+                                if (((CollisionBlockState)blockData).moonrise$emptyContextCollisionShape()) {
+                                    continue;
+                                }
+
+                                if (edgeCount != 0 && ((edgeCount == 1 && !blockData.hasLargeCollisionShape()) || (edgeCount == 2 && blockData.getBlock() != Blocks.MOVING_PISTON))) {
+                                    continue;
+                                }
+
+                                final VoxelShape blockCollision = ((CollisionBlockState)blockData).moonrise$getConstantContextCollisionShape();
+                                if (blockCollision == null) {
+                                    // the shape depends on the world or the entity, leave it to the tick
+                                    return false;
+                                }
+
+                                AABB singleAABB = ((CollisionVoxelShape)blockCollision).moonrise$getSingleAABBRepresentation();
+                                if (singleAABB != null) {
+                                    singleAABB = singleAABB.move((double)blockX, (double)blockY, (double)blockZ);
+                                    if (CollisionUtil.voxelShapeIntersect(aabb, singleAABB)) {
+                                        intoAABB.add(singleAABB);
+                                    }
+                                    continue;
+                                }
+
+                                if (blockCollision.isEmpty()) {
+                                    continue;
+                                }
+
+                                final VoxelShape blockCollisionOffset = blockCollision.move((double)blockX, (double)blockY, (double)blockZ);
+                                if (CollisionUtil.voxelShapeIntersectNoEmpty(blockCollisionOffset, aabb)) {
+                                    intoVoxel.add(blockCollisionOffset);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -8,7 +8,6 @@ import net.minecraft.world.entity.animal.WaterAnimal;
 import net.minecraft.world.entity.monster.Enemy;
 import net.minecraft.world.entity.npc.Villager;
 import net.minecraft.world.entity.raid.Raider;
-import net.minecraft.world.phys.AABB;
 
 public enum ActivationType {
     WATER,
@@ -19,7 +18,8 @@ public enum ActivationType {
     RAIDER,
     MISC;
 
-    AABB boundingBox = new AABB(0, 0, 0, 0, 0, 0);
+    // activation range of this type in the world that is currently being activated
+    int range;
 
     /**
      * Returns the activation type for the given entity.
@@ -0,0 +1,152 @@
+package io.papermc.paper.network;
+
+import io.netty.channel.Channel;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import net.minecraft.network.Connection;
+import net.minecraft.network.protocol.game.ClientboundChunkBatchFinishedPacket;
+import net.minecraft.network.protocol.game.ClientboundChunkBatchStartPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
+
+/**
+ * Adapts the rate at which chunks are sent to a player to how fast their connection and client take them.
+ * <p>
+ * The chunks sent during a tick are wrapped into a chunk batch, which the client acknowledges with the number of chunks
+ * per tick it wants to receive, based on how long it took to receive and process the batch. The rate follows that
+ * number, rising gradually and dropping at once, within the configured bounds. Sending pauses while too many batches are
+ * unacknowledged or while the connection is not writable, that is while more bytes wait in its outbound buffer than its
+ * high water mark, and the rate is halved whenever the connection becomes unwritable.
+ * </p>
+ * <p>
+ * If the client does not acknowledge a batch in time, the unacknowledged batches are dropped and sending resumes at the
+ * minimum rate. A client that never acknowledged a batch is assumed to not send acknowledgements at all, and is only
+ * limited by the writability of its connection afterwards.
+ * </p>
+ */
+public final class ChunkSendRateController {
+
+    // same limit as the vanilla chunk sender
+    private static final int MAX_UNACKNOWLEDGED_BATCHES = 10;
+    // fraction of the difference to the rate the client wants that is added on each acknowledgement
+    private static final double INCREASE_WEIGHT = 0.25;
+    private static final int ACKNOWLEDGEMENT_TIMEOUT_TICKS = 10 * 20;
+
+    private final ServerPlayer player;
+    private double rate = Double.MAX_VALUE;
+    private int batchSize;
+    private int unacknowledgedBatches;
+    // only one batch may be in flight until the client acknowledged the first
+    private int maxUnacknowledgedBatches = 1;
+    private boolean wasWritable = true;
+    private boolean ignoreAcknowledgements;
+    private int lastBatchTick;
+    private boolean enabled;
+
+    public ChunkSendRateController(final ServerPlayer player) {
+        this.player = player;
+    }
+
+    private static boolean isEnabled() {
+        return GlobalConfiguration.get().chunkLoadingBasic.adaptiveChunkSendRate;
+    }
+
+    // starts over when the option is toggled, as batches sent before may never be acknowledged
+    private boolean isActive() {
+        final boolean enabled = isEnabled();
+        if (enabled != this.enabled) {
+            this.enabled = enabled;
+            this.rate = Double.MAX_VALUE;
+            this.unacknowledgedBatches = 0;
+            this.maxUnacknowledgedBatches = 1;
+            this.wasWritable = true;
+            this.ignoreAcknowledgements = false;
+        }
+        return enabled;
+    }
+
+    private boolean isWritable() {
+        final Connection connection = this.player.connection.connection;
+        final Channel channel = connection.channel;
+        // fake players have no channel, chunk packets held back by the connection count as pending
+        return channel == null || (channel.isWritable() && connection.getDeferredPacketCount() == 0);
+    }
+
+    /**
+     * Returns the rate in chunks per second to send chunks at during this tick.
+     *
+     * @param maxRate the configured maximum rate
+     */
+    public double tickRate(final double maxRate) {
+        if (!this.isActive()) {
+            return maxRate;
+        }
+
+        final double minRate = Math.min(maxRate, Math.max(1.0, GlobalConfiguration.get().chunkLoadingBasic.playerMinChunkSendRate));
+        if (this.unacknowledgedBatches != 0 && MinecraftServer.currentTick - this.lastBatchTick >= ACKNOWLEDGEMENT_TIMEOUT_TICKS) {
+            this.unacknowledgedBatches = 0;
+            this.ignoreAcknowledgements = this.maxUnacknowledgedBatches == 1;
+            this.rate = minRate;
+        }
+        final boolean writable = this.isWritable();
+        if (!writable && this.wasWritable) {
+            this.rate = Math.min(this.rate, maxRate) * 0.5;
+        }
+        this.wasWritable = writable;
+
+        this.rate = Mth.clamp(this.rate, minRate, maxRate);
+        return this.rate;
+    }
+
+    /**
+     * Returns whether chunks may be sent during this tick.
+     */
+    public boolean canSend() {
+        return !this.isActive()
+            || ((this.ignoreAcknowledgements || this.unacknowledgedBatches < this.maxUnacknowledgedBatches) && this.isWritable());
+    }
+
+    /**
+     * Called before a chunk is sent, starts a new batch for the first chunk of a tick.
+     */
+    public void onChunkSending() {
+        if (!this.isActive()) {
+            return;
+        }
+
+        if (this.batchSize++ == 0) {
+            this.player.connection.send(ClientboundChunkBatchStartPacket.INSTANCE);
+        }
+    }
+
+    /**
+     * Called after the chunks of a tick were sent, finishes the current batch.
+     */
+    public void finishBatch() {
+        if (this.batchSize == 0) {
+            return;
+        }
+
+        this.player.connection.send(new ClientboundChunkBatchFinishedPacket(this.batchSize));
+        this.batchSize = 0;
+        ++this.unacknowledgedBatches;
+        this.lastBatchTick = MinecraftServer.currentTick;
+    }
+
+    /**
+     * Called when the client acknowledged a batch with the number of chunks per tick it wants to receive.
+     */
+    public void onBatchReceived(final float desiredChunksPerTick) {
+        this.unacknowledgedBatches = Math.max(0, this.unacknowledgedBatches - 1);
+        this.maxUnacknowledgedBatches = MAX_UNACKNOWLEDGED_BATCHES;
+        this.ignoreAcknowledgements = false;
+
+        // same bounds as the vanilla chunk sender
+        final double target = (Float.isNaN(desiredChunksPerTick) ? 0.01 : Mth.clamp(desiredChunksPerTick, 0.01F, 64.0F)) * 20.0;
+        if (target >= this.rate) {
+            this.rate += (target - this.rate) * INCREASE_WEIGHT;
+        } else {
+            this.rate = target;
+        }
+    }
+}
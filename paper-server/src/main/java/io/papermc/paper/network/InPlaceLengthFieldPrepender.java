@@ -0,0 +1,68 @@
+package io.papermc.paper.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import net.minecraft.network.VarInt;
+import net.minecraft.network.Varint21LengthFieldPrepender;
+
+/**
+ * Length field prepender that writes the frame length into the space reserved in front of the packet data, instead of
+ * copying the packet into a new buffer.
+ * <p>
+ * The packet encoder and the compression encoder reserve {@link #HEADROOM} bytes in front of the data they write,
+ * so that the compression header and the frame length can be written in place. The encoded, compressed and framed
+ * packet is then encrypted in place as well. Buffers without enough space in front of them, for example buffers
+ * created by plugins, are copied as usual.
+ */
+public final class InPlaceLengthFieldPrepender extends Varint21LengthFieldPrepender {
+
+    // packet length is encoded into 3-byte varint
+    private static final int MAX_FRAME_HEADER = 3;
+    // frame length and the compression header of uncompressed packets, which is always 0 and thus 1 byte
+    public static final int HEADROOM = MAX_FRAME_HEADER + 1;
+
+    /**
+     * Reserves the specified number of bytes in front of the data written to the specified empty buffer.
+     */
+    public static ByteBuf reserveHeadroom(final ByteBuf buffer, final int headroom) {
+        buffer.ensureWritable(headroom);
+        buffer.setIndex(buffer.readerIndex() + headroom, buffer.writerIndex() + headroom);
+        return buffer;
+    }
+
+    /**
+     * Writes the specified value as a varint in front of the readable bytes of the buffer.
+     *
+     * @return whether there was enough space in front of the readable bytes
+     */
+    public static boolean prependVarInt(final ByteBuf buffer, final int value) {
+        final int size = VarInt.getByteSize(value);
+        final int start = buffer.readerIndex() - size;
+        if (start < 0) {
+            return false;
+        }
+
+        int index = start;
+        int remaining = value;
+        while ((remaining & -128) != 0) {
+            buffer.setByte(index++, remaining & 127 | 128);
+            remaining >>>= 7;
+        }
+        buffer.setByte(index, remaining);
+        buffer.readerIndex(start);
+        return true;
+    }
+
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf buffer && VarInt.getByteSize(buffer.readableBytes()) <= MAX_FRAME_HEADER
+            && prependVarInt(buffer, buffer.readableBytes())) {
+            ctx.write(buffer, promise);
+            return;
+        }
+
+        // no space reserved, or too large - let vanilla copy or reject it
+        super.write(ctx, msg, promise);
+    }
+}
@@ -0,0 +1,83 @@
+package io.papermc.paper.network;
+
+import java.util.Set;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.common.ClientboundKeepAlivePacket;
+import net.minecraft.network.protocol.common.ClientboundPingPacket;
+import net.minecraft.network.protocol.game.ClientboundAnimatePacket;
+import net.minecraft.network.protocol.game.ClientboundChunkBatchFinishedPacket;
+import net.minecraft.network.protocol.game.ClientboundChunkBatchStartPacket;
+import net.minecraft.network.protocol.game.ClientboundChunksBiomesPacket;
+import net.minecraft.network.protocol.game.ClientboundDamageEventPacket;
+import net.minecraft.network.protocol.game.ClientboundEntityEventPacket;
+import net.minecraft.network.protocol.game.ClientboundEntityPositionSyncPacket;
+import net.minecraft.network.protocol.game.ClientboundHurtAnimationPacket;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.network.protocol.game.ClientboundLevelParticlesPacket;
+import net.minecraft.network.protocol.game.ClientboundLightUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundMoveEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundRotateHeadPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityMotionPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEquipmentPacket;
+import net.minecraft.network.protocol.game.ClientboundSetExperiencePacket;
+import net.minecraft.network.protocol.game.ClientboundSetHealthPacket;
+import net.minecraft.network.protocol.game.ClientboundSoundEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundSoundPacket;
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundUpdateAttributesPacket;
+
+/**
+ * Outbound priority of a packet.
+ * <p>
+ * Bulk packets, the chunk and light data, may be held back while the connection is congested. They keep their order
+ * among themselves, and every normal packet waits until the held back packets were written, so that no packet can
+ * arrive before the chunk it refers to. Urgent packets, which only refer to entities the client already knows or to the
+ * player, may be written before held back packets.
+ * </p>
+ */
+public enum PacketPriority {
+
+    URGENT,
+    NORMAL,
+    BULK;
+
+    private static final Set<Class<?>> URGENT_PACKETS = Set.of(
+        ClientboundKeepAlivePacket.class,
+        ClientboundPingPacket.class,
+        ClientboundTeleportEntityPacket.class,
+        ClientboundEntityPositionSyncPacket.class,
+        ClientboundRotateHeadPacket.class,
+        ClientboundSetEntityMotionPacket.class,
+        ClientboundSetEntityDataPacket.class,
+        ClientboundSetEquipmentPacket.class,
+        ClientboundUpdateAttributesPacket.class,
+        ClientboundAnimatePacket.class,
+        ClientboundHurtAnimationPacket.class,
+        ClientboundDamageEventPacket.class,
+        ClientboundEntityEventPacket.class,
+        ClientboundSetHealthPacket.class,
+        ClientboundSetExperiencePacket.class,
+        ClientboundSoundPacket.class,
+        ClientboundSoundEntityPacket.class,
+        ClientboundLevelParticlesPacket.class
+    );
+    private static final Set<Class<?>> BULK_PACKETS = Set.of(
+        ClientboundChunkBatchStartPacket.class,
+        ClientboundLevelChunkWithLightPacket.class,
+        ClientboundChunkBatchFinishedPacket.class,
+        ClientboundLightUpdatePacket.class,
+        ClientboundChunksBiomesPacket.class
+    );
+
+    public static PacketPriority of(final Packet<?> packet) {
+        final Class<?> clazz = packet.getClass();
+        if (BULK_PACKETS.contains(clazz)) {
+            return BULK;
+        }
+        if (URGENT_PACKETS.contains(clazz) || packet instanceof ClientboundMoveEntityPacket) {
+            return URGENT;
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,199 @@
+package io.papermc.paper.network;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.network.protocol.PacketType;
+
+/**
+ * Always-on packet counters of one connection, attached to its channel.
+ * <p>
+ * Packets are counted by the encoder and decoder on the event loop of the connection. Rates are kept in buckets of one
+ * second each, so the memory used does not depend on the number of packets.
+ * </p>
+ */
+public final class PaperPacketStatistics implements PacketStatistics {
+
+    public static final PaperPacketStatistics EMPTY = new PaperPacketStatistics();
+    private static final AttributeKey<PaperPacketStatistics> ATTRIBUTE = AttributeKey.valueOf("paper:packet_statistics");
+    private static final int WINDOW_SECONDS = 10;
+
+    // only modified on the event loop of the connection, read while holding the lock
+    private final Reference2ObjectMap<PacketType<?>, TypeCounter> sent = new Reference2ObjectOpenHashMap<>();
+    private final Reference2ObjectMap<PacketType<?>, TypeCounter> received = new Reference2ObjectOpenHashMap<>();
+
+    private PaperPacketStatistics() {
+    }
+
+    private static PaperPacketStatistics getOrCreate(final Channel channel) {
+        final Attribute<PaperPacketStatistics> attribute = channel.attr(ATTRIBUTE);
+        final PaperPacketStatistics statistics = attribute.get();
+        if (statistics != null) {
+            return statistics;
+        }
+        final PaperPacketStatistics created = new PaperPacketStatistics();
+        final PaperPacketStatistics existing = attribute.setIfAbsent(created);
+        return existing == null ? created : existing;
+    }
+
+    public static PaperPacketStatistics get(final Channel channel) {
+        if (channel == null) {
+            return EMPTY;
+        }
+        final PaperPacketStatistics statistics = channel.attr(ATTRIBUTE).get();
+        return statistics == null ? EMPTY : statistics;
+    }
+
+    public static void onPacketSent(final Channel channel, final PacketType<?> type, final int bytes) {
+        getOrCreate(channel).record(true, type, bytes);
+    }
+
+    public static void onPacketReceived(final Channel channel, final PacketType<?> type, final int bytes) {
+        getOrCreate(channel).record(false, type, bytes);
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    private synchronized void record(final boolean sent, final PacketType<?> type, final int bytes) {
+        final Reference2ObjectMap<PacketType<?>, TypeCounter> counters = sent ? this.sent : this.received;
+        TypeCounter counter = counters.get(type);
+        if (counter == null) {
+            counter = new TypeCounter();
+            counters.put(type, counter);
+        }
+        counter.add(currentSecond(), bytes);
+    }
+
+    @Override
+    public int getWindowSeconds() {
+        return WINDOW_SECONDS;
+    }
+
+    @Override
+    public Map<String, Counter> getSent() {
+        return this.snapshot(true);
+    }
+
+    @Override
+    public Map<String, Counter> getReceived() {
+        return this.snapshot(false);
+    }
+
+    private Map<String, Counter> snapshot(final boolean sent) {
+        final Map<String, CounterSnapshot> ret = new HashMap<>();
+        this.snapshotInto(ret, sent, currentSecond());
+        return Collections.unmodifiableMap(ret);
+    }
+
+    private synchronized void snapshotInto(final Map<String, CounterSnapshot> into, final boolean sent, final long second) {
+        for (final Reference2ObjectMap.Entry<PacketType<?>, TypeCounter> entry : (sent ? this.sent : this.received).reference2ObjectEntrySet()) {
+            final TypeCounter counter = entry.getValue();
+            counter.advance(second);
+            into.merge(
+                entry.getKey().id().toString(),
+                new CounterSnapshot(counter.totalPackets, counter.totalBytes, counter.windowPackets(), counter.windowBytes()),
+                CounterSnapshot::add
+            );
+        }
+    }
+
+    /**
+     * Sums up the statistics of the specified connections.
+     */
+    public static PacketStatistics sum(final Collection<PaperPacketStatistics> statistics) {
+        final long second = currentSecond();
+        final Map<String, CounterSnapshot> sent = new HashMap<>();
+        final Map<String, CounterSnapshot> received = new HashMap<>();
+        for (final PaperPacketStatistics connection : statistics) {
+            connection.snapshotInto(sent, true, second);
+            connection.snapshotInto(received, false, second);
+        }
+        return new Sum(Collections.unmodifiableMap(sent), Collections.unmodifiableMap(received));
+    }
+
+    private record Sum(Map<String, Counter> getSent, Map<String, Counter> getReceived) implements PacketStatistics {
+
+        @Override
+        public int getWindowSeconds() {
+            return WINDOW_SECONDS;
+        }
+    }
+
+    private static final class TypeCounter {
+
+        private long totalPackets;
+        private long totalBytes;
+        // bucket of second s is at index s mod WINDOW_SECONDS
+        private final long[] packets = new long[WINDOW_SECONDS];
+        private final long[] bytes = new long[WINDOW_SECONDS];
+        private long lastSecond = currentSecond();
+
+        private void advance(final long second) {
+            final long elapsed = second - this.lastSecond;
+            if (elapsed <= 0L) {
+                return;
+            }
+            // clear the buckets of the seconds without packets
+            for (long i = 1L; i <= Math.min(elapsed, WINDOW_SECONDS); ++i) {
+                final int index = (int)Math.floorMod(this.lastSecond + i, (long)WINDOW_SECONDS);
+                this.packets[index] = 0L;
+                this.bytes[index] = 0L;
+            }
+            this.lastSecond = second;
+        }
+
+        private void add(final long second, final int bytes) {
+            this.advance(second);
+            final int index = (int)Math.floorMod(second, (long)WINDOW_SECONDS);
+            ++this.totalPackets;
+            this.totalBytes += bytes;
+            ++this.packets[index];
+            this.bytes[index] += bytes;
+        }
+
+        private long windowPackets() {
+            long sum = 0L;
+            for (final long count : this.packets) {
+                sum += count;
+            }
+            return sum;
+        }
+
+        private long windowBytes() {
+            long sum = 0L;
+            for (final long count : this.bytes) {
+                sum += count;
+            }
+            return sum;
+        }
+    }
+
+    private record CounterSnapshot(long getTotalPackets, long getTotalBytes, long windowPackets, long windowBytes) implements Counter {
+
+        private static CounterSnapshot add(final CounterSnapshot first, final CounterSnapshot second) {
+            return new CounterSnapshot(
+                first.getTotalPackets + second.getTotalPackets, first.getTotalBytes + second.getTotalBytes,
+                first.windowPackets + second.windowPackets, first.windowBytes + second.windowBytes
+            );
+        }
+
+        @Override
+        public double getPacketsPerSecond() {
+            return (double)this.windowPackets / (double)WINDOW_SECONDS;
+        }
+
+        @Override
+        public double getBytesPerSecond() {
+            return (double)this.windowBytes / (double)WINDOW_SECONDS;
+        }
+    }
+}
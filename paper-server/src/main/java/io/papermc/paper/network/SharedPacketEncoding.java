@@ -0,0 +1,144 @@
+package io.papermc.paper.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.server.MinecraftServer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Encodes packets which are broadcast to several connections only once.
+ * <p>
+ * Entity trackers register the packets they send to more than one viewer on the main thread. The first connection
+ * encoding such a packet keeps a copy of the bytes, which the other connections write instead of encoding the packet
+ * again. The copy is only reused for the same protocol and locale, as components are rendered in the locale of each
+ * player. Packets are looked up by identity, so equal packets which were not broadcast never share an encoding.
+ * Packets are forgotten two ticks after they were registered.
+ * </p>
+ */
+public final class SharedPacketEncoding {
+
+    private static final int MIN_VIEWERS = 2;
+
+    private static volatile Map<Key, Entry> current = new ConcurrentHashMap<>();
+    private static volatile Map<Key, Entry> previous = new ConcurrentHashMap<>();
+    // whether any packet is registered in either map, so lookups are skipped while nothing is shared
+    private static volatile boolean active;
+    private static int currentTick = Integer.MIN_VALUE;
+
+    private SharedPacketEncoding() {
+    }
+
+    /**
+     * Registers a packet about to be sent to the specified number of viewers. Must be called on the main thread.
+     */
+    public static void share(final Packet<?> packet, final int viewers) {
+        if (viewers < MIN_VIEWERS || !GlobalConfiguration.get().misc.sharedPacketEncoding) {
+            return;
+        }
+
+        final int tick = MinecraftServer.currentTick;
+        if (tick != currentTick) {
+            currentTick = tick;
+            final Map<Key, Entry> old = previous;
+            old.clear();
+            previous = current;
+            current = old;
+            active = !previous.isEmpty();
+        }
+
+        current.putIfAbsent(new Key(packet), new Entry());
+        active = true;
+    }
+
+    /**
+     * Per connection lookup of shared encodings. Reuses its key, so it must only be used by one thread.
+     */
+    public static final class Lookup {
+
+        private final Key key = new Key(null);
+
+        /**
+         * Returns the shared encoding of a packet, or {@code null} if the packet was not registered.
+         */
+        public @Nullable Entry get(final Packet<?> packet) {
+            if (!active || !GlobalConfiguration.get().misc.sharedPacketEncoding) {
+                return null;
+            }
+
+            final Key key = this.key;
+            key.set(packet);
+            try {
+                final Entry entry = current.get(key);
+                return entry != null ? entry : previous.get(key);
+            } finally {
+                key.set(null);
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private @Nullable Packet<?> packet;
+        private int hash;
+
+        private Key(final @Nullable Packet<?> packet) {
+            this.set(packet);
+        }
+
+        private void set(final @Nullable Packet<?> packet) {
+            this.packet = packet;
+            this.hash = System.identityHashCode(packet);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key other && other.packet == this.packet;
+        }
+    }
+
+    public static final class Entry {
+
+        private volatile @Nullable Encoded encoded;
+
+        private Entry() {
+        }
+
+        /**
+         * Writes the shared bytes into the specified buffer if they were encoded for the same protocol and locale.
+         */
+        public boolean write(final ConnectionProtocol protocol, final @Nullable Locale locale, final ByteBuf into) {
+            final Encoded encoded = this.encoded;
+            if (encoded == null || encoded.protocol != protocol || !Objects.equals(encoded.locale, locale)) {
+                return false;
+            }
+            into.writeBytes(encoded.bytes);
+            return true;
+        }
+
+        /**
+         * Keeps a copy of the bytes written into the specified buffer since {@code start}, unless another
+         * connection already did.
+         */
+        public void store(final ConnectionProtocol protocol, final @Nullable Locale locale, final ByteBuf buffer, final int start) {
+            if (this.encoded != null) {
+                return;
+            }
+            this.encoded = new Encoded(protocol, locale, ByteBufUtil.getBytes(buffer, start, buffer.writerIndex() - start));
+        }
+    }
+
+    private record Encoded(ConnectionProtocol protocol, @Nullable Locale locale, byte[] bytes) {
+    }
+}
@@ -0,0 +1,434 @@
+package io.papermc.paper.world;
+
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.moonrise.common.util.CoordinateUtils;
+import ca.spottedleaf.moonrise.common.util.TickThread;
+import ca.spottedleaf.moonrise.common.util.WorldUtil;
+import ca.spottedleaf.moonrise.patches.chunk_system.io.MoonriseRegionFileIO;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.ChunkSystemServerLevel;
+import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.ChunkTaskScheduler;
+import ca.spottedleaf.moonrise.patches.chunk_system.util.ParallelSearchRadiusIteration;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.util.IntervalledCounter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.status.ChunkStatus;
+import org.bukkit.World;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Generates every chunk within a square area of a world by scheduling full chunk loads directly on the world's
+ * {@link ChunkTaskScheduler}.
+ * <p>
+ * The area is split into region files, which are generated in order of distance to the center so that the
+ * chunks of one region file are generated and saved together. Within a region, chunks are scheduled in
+ * {@link ParallelSearchRadiusIteration} order, which spreads neighbouring chunks apart so that their generation
+ * can run in parallel. New chunks are only scheduled while the number of chunks being generated and the number of
+ * pending chunk writes are below their limits, and at a lower priority than chunk loads for players.
+ * </p>
+ * <p>
+ * Progress is tracked as the number of completed regions and saved periodically, so a stopped pre-generation
+ * resumes with the first region that was not completed.
+ * </p>
+ */
+public final class ChunkPregenerator implements ChunkPregeneration {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    public static final String FILE_NAME = "paper_pregen.dat";
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_SIZE = 1 << REGION_SHIFT;
+    private static final long[] REGION_ITERATION = createRegionIteration();
+    private static final int MAX_IN_FLIGHT_CHUNKS = 256;
+    // chunk writes queued in the region file I/O, above this the generated chunks are not saved fast enough
+    private static final long MAX_PENDING_WRITES = 2048L;
+    private static final int SAVE_INTERVAL_TICKS = 30 * 20;
+    private static final int LOG_INTERVAL_TICKS = 60 * 20;
+    private static final Priority PRIORITY = Priority.LOW;
+    private static final Map<ServerLevel, ChunkPregenerator> RUNNING = new ConcurrentHashMap<>();
+
+    private static final class Region {
+
+        private final int regionX;
+        private final int regionZ;
+        private final AtomicInteger pendingChunks = new AtomicInteger();
+        private int nextChunk;
+        private boolean scheduled;
+
+        private Region(final int regionX, final int regionZ) {
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+        }
+    }
+
+    private final ServerLevel world;
+    private final int centerX;
+    private final int centerZ;
+    private final int radius;
+    private final long[] regions;
+    private final long totalChunks;
+
+    private final AtomicLong generatedChunks;
+    private final AtomicInteger inFlightChunks = new AtomicInteger();
+    // regions being generated, in order
+    private final ArrayDeque<Region> activeRegions = new ArrayDeque<>();
+    private int completedRegions;
+    private int nextRegion;
+    private long ticks;
+
+    private final IntervalledCounter generationRate = new IntervalledCounter(TimeUnit.SECONDS.toNanos(10L));
+    private long lastGeneratedChunks;
+    private volatile double chunksPerSecond;
+
+    private volatile boolean stopRequested;
+    private volatile boolean running = true;
+    private volatile boolean complete;
+
+    private ChunkPregenerator(final ServerLevel world, final int centerX, final int centerZ, final int radius, final int completedRegions) {
+        this.world = world;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.regions = createRegionOrder(centerX, centerZ, radius);
+        this.totalChunks = (2L * radius + 1L) * (2L * radius + 1L);
+        this.completedRegions = Math.min(completedRegions, this.regions.length);
+        this.nextRegion = this.completedRegions;
+        this.generatedChunks = new AtomicLong(this.countChunks(this.completedRegions));
+        this.lastGeneratedChunks = this.generatedChunks.get();
+    }
+
+    private static long[] createRegionIteration() {
+        // a region is covered by the iteration of radius 16 around the chunk at offset (16, 16)
+        final long[] iteration = ParallelSearchRadiusIteration.getSearchIteration(REGION_SIZE / 2);
+        final long[] ret = new long[REGION_SIZE * REGION_SIZE];
+        int len = 0;
+        for (final long offset : iteration) {
+            final int x = CoordinateUtils.getChunkX(offset) + REGION_SIZE / 2;
+            final int z = CoordinateUtils.getChunkZ(offset) + REGION_SIZE / 2;
+            if (x < REGION_SIZE && z < REGION_SIZE) {
+                ret[len++] = CoordinateUtils.getChunkKey(x, z);
+            }
+        }
+        return Arrays.copyOf(ret, len);
+    }
+
+    private static long[] createRegionOrder(final int centerX, final int centerZ, final int radius) {
+        final int centerRegionX = centerX >> REGION_SHIFT;
+        final int centerRegionZ = centerZ >> REGION_SHIFT;
+        final int minRegionX = (centerX - radius) >> REGION_SHIFT;
+        final int maxRegionX = (centerX + radius) >> REGION_SHIFT;
+        final int minRegionZ = (centerZ - radius) >> REGION_SHIFT;
+        final int maxRegionZ = (centerZ + radius) >> REGION_SHIFT;
+
+        final Long[] ret = new Long[(maxRegionX - minRegionX + 1) * (maxRegionZ - minRegionZ + 1)];
+        int len = 0;
+        for (int regionZ = minRegionZ; regionZ <= maxRegionZ; ++regionZ) {
+            for (int regionX = minRegionX; regionX <= maxRegionX; ++regionX) {
+                ret[len++] = CoordinateUtils.getChunkKey(regionX, regionZ);
+            }
+        }
+
+        // the order must not change between restarts, so ties are broken by coordinates
+        Arrays.sort(ret, Comparator.<Long>comparingInt((final Long key) -> {
+            return Math.max(Math.abs(CoordinateUtils.getChunkX(key.longValue()) - centerRegionX), Math.abs(CoordinateUtils.getChunkZ(key.longValue()) - centerRegionZ));
+        }).thenComparingInt((final Long key) -> CoordinateUtils.getChunkZ(key.longValue())).thenComparingInt((final Long key) -> CoordinateUtils.getChunkX(key.longValue())));
+
+        return Arrays.stream(ret).mapToLong(Long::longValue).toArray();
+    }
+
+    // the chunks of the first regions that are within the area
+    private long countChunks(final int regions) {
+        long ret = 0L;
+        for (int i = 0; i < regions; ++i) {
+            final int regionX = CoordinateUtils.getChunkX(this.regions[i]);
+            final int regionZ = CoordinateUtils.getChunkZ(this.regions[i]);
+            final int minX = Math.max(regionX << REGION_SHIFT, this.centerX - this.radius);
+            final int maxX = Math.min((regionX << REGION_SHIFT) + (REGION_SIZE - 1), this.centerX + this.radius);
+            final int minZ = Math.max(regionZ << REGION_SHIFT, this.centerZ - this.radius);
+            final int maxZ = Math.min((regionZ << REGION_SHIFT) + (REGION_SIZE - 1), this.centerZ + this.radius);
+            ret += (long)(maxX - minX + 1) * (long)(maxZ - minZ + 1);
+        }
+        return ret;
+    }
+
+    private static Path getFile(final ServerLevel world) {
+        return world.levelStorageAccess.getDimensionPath(world.dimension()).resolve(FILE_NAME);
+    }
+
+    public static @Nullable ChunkPregenerator getRunning(final ServerLevel world) {
+        return RUNNING.get(world);
+    }
+
+    /**
+     * Starts generating the chunks within the specified radius around a chunk, discarding any saved progress.
+     *
+     * @return the started pre-generation, or {@code null} if the world is already being pre-generated
+     */
+    public static @Nullable ChunkPregenerator start(final ServerLevel world, final int centerX, final int centerZ, final int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must be at least 0: " + radius);
+        }
+        return register(new ChunkPregenerator(world, centerX, centerZ, radius, 0));
+    }
+
+    /**
+     * Resumes the pre-generation of the specified world from its saved progress.
+     *
+     * @return the resumed pre-generation, or {@code null} if the world is already being pre-generated or there is
+     * no saved progress
+     */
+    public static @Nullable ChunkPregenerator resume(final ServerLevel world) {
+        if (RUNNING.containsKey(world)) {
+            return null;
+        }
+        final Path file = getFile(world);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        final CompoundTag state;
+        try {
+            state = NbtIo.read(file);
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to read the pre-generation progress of world '" + WorldUtil.getWorldName(world) + "'", ex);
+            return null;
+        }
+        if (state == null) {
+            return null;
+        }
+
+        return register(new ChunkPregenerator(
+            world, state.getInt("CenterX"), state.getInt("CenterZ"), state.getInt("Radius"), state.getInt("CompletedRegions")
+        ));
+    }
+
+    private static @Nullable ChunkPregenerator register(final ChunkPregenerator pregenerator) {
+        if (RUNNING.putIfAbsent(pregenerator.world, pregenerator) != null) {
+            return null;
+        }
+        pregenerator.saveProgress();
+        LOGGER.info(
+            "Pre-generating " + pregenerator.totalChunks + " chunks within a radius of " + pregenerator.radius + " chunks around chunk ("
+                + pregenerator.centerX + ", " + pregenerator.centerZ + ") in world '" + WorldUtil.getWorldName(pregenerator.world) + "'"
+        );
+        return pregenerator;
+    }
+
+    /**
+     * Schedules more chunks of the running pre-generation of the specified world, if any. Called every tick.
+     */
+    public static void tick(final ServerLevel world) {
+        final ChunkPregenerator pregenerator = RUNNING.get(world);
+        if (pregenerator != null) {
+            pregenerator.tick();
+        }
+    }
+
+    /**
+     * Stops the running pre-generation of the specified world, if any, saving its progress.
+     */
+    public static void onWorldClose(final ServerLevel world) {
+        final ChunkPregenerator pregenerator = RUNNING.get(world);
+        if (pregenerator != null) {
+            pregenerator.finishStop();
+        }
+    }
+
+    private void tick() {
+        TickThread.ensureTickThread("Ticking pre-generation off-main");
+        ++this.ticks;
+
+        final long now = System.nanoTime();
+        final long generated = this.generatedChunks.get();
+        this.generationRate.updateCurrentTime(now);
+        this.generationRate.addTime(now, generated - this.lastGeneratedChunks);
+        this.lastGeneratedChunks = generated;
+        this.chunksPerSecond = this.generationRate.getRate();
+
+        Region head;
+        while ((head = this.activeRegions.peekFirst()) != null && head.scheduled && head.pendingChunks.get() == 0) {
+            this.activeRegions.pollFirst();
+            ++this.completedRegions;
+        }
+
+        if (this.completedRegions >= this.regions.length) {
+            this.finishComplete();
+            return;
+        }
+        if (this.stopRequested) {
+            this.finishStop();
+            return;
+        }
+
+        final long pendingWrites = MoonriseRegionFileIO.getControllerFor(this.world, MoonriseRegionFileIO.RegionFileType.CHUNK_DATA).getTotalWorkingTasks();
+        while (this.inFlightChunks.get() < MAX_IN_FLIGHT_CHUNKS && pendingWrites < MAX_PENDING_WRITES) {
+            if (!this.scheduleNextChunk()) {
+                break;
+            }
+        }
+
+        if ((this.ticks % SAVE_INTERVAL_TICKS) == 0L) {
+            this.saveProgress();
+        }
+        if ((this.ticks % LOG_INTERVAL_TICKS) == 0L) {
+            LOGGER.info(
+                "Pre-generation of world '" + WorldUtil.getWorldName(this.world) + "': " + generated + "/" + this.totalChunks
+                    + " chunks, " + String.format(Locale.ROOT, "%.1f", this.chunksPerSecond) + " chunks/s"
+            );
+        }
+    }
+
+    private boolean scheduleNextChunk() {
+        Region region = this.activeRegions.peekLast();
+        if (region == null || region.scheduled) {
+            if (this.nextRegion >= this.regions.length) {
+                return false;
+            }
+            final long regionKey = this.regions[this.nextRegion++];
+            region = new Region(CoordinateUtils.getChunkX(regionKey), CoordinateUtils.getChunkZ(regionKey));
+            this.activeRegions.addLast(region);
+        }
+
+        final int minX = this.centerX - this.radius;
+        final int maxX = this.centerX + this.radius;
+        final int minZ = this.centerZ - this.radius;
+        final int maxZ = this.centerZ + this.radius;
+        while (region.nextChunk < REGION_ITERATION.length) {
+            final long offset = REGION_ITERATION[region.nextChunk++];
+            final int chunkX = (region.regionX << REGION_SHIFT) | CoordinateUtils.getChunkX(offset);
+            final int chunkZ = (region.regionZ << REGION_SHIFT) | CoordinateUtils.getChunkZ(offset);
+            if (chunkX < minX || chunkX > maxX || chunkZ < minZ || chunkZ > maxZ) {
+                continue;
+            }
+            this.scheduleChunk(region, chunkX, chunkZ);
+            if (region.nextChunk >= REGION_ITERATION.length) {
+                region.scheduled = true;
+            }
+            return true;
+        }
+
+        // no chunk of the region is within the area
+        region.scheduled = true;
+        return true;
+    }
+
+    private void scheduleChunk(final Region region, final int chunkX, final int chunkZ) {
+        this.inFlightChunks.getAndIncrement();
+        region.pendingChunks.getAndIncrement();
+        ((ChunkSystemServerLevel)this.world).moonrise$getChunkTaskScheduler().scheduleChunkLoad(
+            chunkX, chunkZ, ChunkStatus.FULL, true, PRIORITY, (final ChunkAccess chunk) -> {
+                this.generatedChunks.getAndIncrement();
+                region.pendingChunks.getAndDecrement();
+                this.inFlightChunks.getAndDecrement();
+            }
+        );
+    }
+
+    private void saveProgress() {
+        final CompoundTag state = new CompoundTag();
+        state.putInt("CenterX", this.centerX);
+        state.putInt("CenterZ", this.centerZ);
+        state.putInt("Radius", this.radius);
+        state.putInt("CompletedRegions", this.completedRegions);
+
+        final Path file = getFile(this.world);
+        final Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            NbtIo.write(state, tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to save the pre-generation progress of world '" + WorldUtil.getWorldName(this.world) + "'", ex);
+        }
+    }
+
+    private void finishStop() {
+        if (!this.running) {
+            return;
+        }
+        this.running = false;
+        RUNNING.remove(this.world, this);
+        this.saveProgress();
+        LOGGER.info(
+            "Stopped pre-generation of world '" + WorldUtil.getWorldName(this.world) + "' after " + this.generatedChunks.get() + "/"
+                + this.totalChunks + " chunks, use '/paper pregen resume' to continue"
+        );
+    }
+
+    private void finishComplete() {
+        this.running = false;
+        this.complete = true;
+        RUNNING.remove(this.world, this);
+        try {
+            Files.deleteIfExists(getFile(this.world));
+        } catch (final IOException ex) {
+            LOGGER.warn("Failed to delete the pre-generation progress of world '" + WorldUtil.getWorldName(this.world) + "'", ex);
+        }
+        LOGGER.info("Finished pre-generation of " + this.totalChunks + " chunks in world '" + WorldUtil.getWorldName(this.world) + "'");
+    }
+
+    @Override
+    public World getWorld() {
+        return this.world.getWorld();
+    }
+
+    @Override
+    public int getCenterChunkX() {
+        return this.centerX;
+    }
+
+    @Override
+    public int getCenterChunkZ() {
+        return this.centerZ;
+    }
+
+    @Override
+    public int getRadius() {
+        return this.radius;
+    }
+
+    @Override
+    public long getTotalChunks() {
+        return this.totalChunks;
+    }
+
+    @Override
+    public long getGeneratedChunks() {
+        return Math.min(this.generatedChunks.get(), this.totalChunks);
+    }
+
+    @Override
+    public double getChunksPerSecond() {
+        return this.chunksPerSecond;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    @Override
+    public void stop() {
+        this.stopRequested = true;
+    }
+}
@@ -0,0 +1,240 @@
+package io.papermc.paper.world;
+
+import ca.spottedleaf.concurrentutil.executor.PrioritisedExecutor;
+import ca.spottedleaf.moonrise.patches.chunk_system.io.MoonriseRegionFileIO;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.ChunkSystemServerLevel;
+import ca.spottedleaf.moonrise.patches.chunk_system.scheduling.ChunkTaskScheduler;
+import io.papermc.paper.antixray.ChunkPacketBlockControllerAntiXray;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.chunk.status.ChunkStatus;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Always-on counters and latency histograms of the chunk system stages.
+ * <p>
+ * Recording a latency only updates a few {@link LongAdder}s, so timers may be used on every chunk system thread
+ * without contention. Latencies are bucketed by their highest set bit in nanoseconds.
+ * </p>
+ */
+public final class PaperChunkSystemMetrics implements ChunkSystemMetrics {
+
+    public static final PaperChunkSystemMetrics INSTANCE = new PaperChunkSystemMetrics();
+
+    // bucket i holds latencies in [2^i, 2^(i+1)) ns, the last bucket holds everything above 2^40 ns (~18 minutes)
+    private static final int BUCKETS = 41;
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<ChunkStatus, Timer> GENERATION_TIMERS = new ConcurrentHashMap<>();
+
+    // reading chunk data from the region file
+    public static final Timer IO_READ = getTimer("io-read");
+    // decompressing read chunk data
+    public static final Timer DECOMPRESS = getTimer("decompress");
+    // running the data converters on chunk data
+    public static final Timer CONVERT = getTimer("convert");
+    // deserializing chunk data into a proto chunk
+    public static final Timer LOAD = getTimer("load");
+    public static final Timer LIGHT = getTimer("light");
+    // promoting a chunk to a full chunk
+    public static final Timer FULL = getTimer("full");
+    // copying the data of a chunk to save on the main thread
+    public static final Timer SAVE_COPY = getTimer("save-copy");
+    // serializing the copied data of a chunk to save
+    public static final Timer SAVE = getTimer("save");
+    // compressing chunk data to write
+    public static final Timer COMPRESS = getTimer("compress");
+    // writing chunk data to the region file
+    public static final Timer IO_WRITE = getTimer("io-write");
+
+    private volatile long resetTime = System.nanoTime();
+
+    private PaperChunkSystemMetrics() {
+    }
+
+    private static Timer getTimer(final String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Creates a timer that is not listed in the stages, for stages that are recorded per world.
+     */
+    public static Timer newTimer(final String name) {
+        return new Timer(name);
+    }
+
+    public static Timer getGenerationTimer(final ChunkStatus status) {
+        return GENERATION_TIMERS.computeIfAbsent(status, (final ChunkStatus keyInMap) -> {
+            return getTimer("generate/" + BuiltInRegistries.CHUNK_STATUS.getKey(keyInMap).getPath());
+        });
+    }
+
+    public static final class Timer {
+
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Timer(final String name) {
+            this.name = name;
+            for (int i = 0; i < BUCKETS; ++i) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Records an execution of this stage that started at the specified {@link System#nanoTime()}.
+         */
+        public void record(final long start) {
+            final long nanos = Math.max(0L, System.nanoTime() - start);
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            this.buckets[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos | 1L))].increment();
+            long max = this.maxNanos.get();
+            while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+                max = this.maxNanos.get();
+            }
+        }
+
+        private void reset() {
+            this.count.reset();
+            this.totalNanos.reset();
+            this.maxNanos.set(0L);
+            for (final LongAdder bucket : this.buckets) {
+                bucket.reset();
+            }
+        }
+
+        private StageSnapshot snapshot(final double seconds) {
+            final long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; ++i) {
+                buckets[i] = this.buckets[i].sum();
+            }
+            return new StageSnapshot(this.count.sum(), this.totalNanos.sum(), this.maxNanos.get(), buckets, seconds);
+        }
+    }
+
+    private record StageSnapshot(long count, long totalNanos, long maxNanos, long[] buckets, double seconds) implements ChunkSystemMetrics.Stage {
+
+        @Override
+        public long getCount() {
+            return this.count;
+        }
+
+        @Override
+        public double getThroughput() {
+            return this.seconds <= 0.0 ? 0.0 : (double)this.count / this.seconds;
+        }
+
+        @Override
+        public double getAverageMillis() {
+            return this.count == 0L ? 0.0 : (double)this.totalNanos / (double)this.count * 1.0E-6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return (double)this.maxNanos * 1.0E-6;
+        }
+
+        @Override
+        public double getPercentileMillis(final double percentile) {
+            if (percentile < 0.0 || percentile > 1.0) {
+                throw new IllegalArgumentException("Percentile must be in [0, 1]: " + percentile);
+            }
+            long total = 0L;
+            for (final long bucket : this.buckets) {
+                total += bucket;
+            }
+            if (total == 0L) {
+                return 0.0;
+            }
+
+            final long target = Math.max(1L, (long)Math.ceil(percentile * (double)total));
+            long seen = 0L;
+            for (int i = 0; i < this.buckets.length; ++i) {
+                seen += this.buckets[i];
+                if (seen >= target) {
+                    // upper bound of the bucket, but never above the maximum seen
+                    return (double)Math.min(1L << (i + 1), this.maxNanos) * 1.0E-6;
+                }
+            }
+            return this.getMaxMillis();
+        }
+    }
+
+    @Override
+    public Map<String, Stage> getStages() {
+        final double seconds = (double)(System.nanoTime() - this.resetTime) * 1.0E-9;
+        final Map<String, Stage> ret = new LinkedHashMap<>();
+        TIMERS.values().stream()
+            .sorted((final Timer t1, final Timer t2) -> t1.name.compareTo(t2.name))
+            .forEach((final Timer timer) -> {
+                final StageSnapshot snapshot = timer.snapshot(seconds);
+                if (snapshot.count() != 0L) {
+                    ret.put(timer.name, snapshot);
+                }
+            });
+        return Collections.unmodifiableMap(ret);
+    }
+
+    private static @Nullable ChunkPacketBlockControllerAntiXray getAntiXray(final World world) {
+        return ((CraftWorld)world).getHandle().chunkPacketBlockController instanceof ChunkPacketBlockControllerAntiXray antiXray ? antiXray : null;
+    }
+
+    @Override
+    public @Nullable Stage getAntiXrayObfuscation(final World world) {
+        final ChunkPacketBlockControllerAntiXray antiXray = getAntiXray(world);
+        return antiXray == null ? null : antiXray.getObfuscationTimer().snapshot((double)(System.nanoTime() - this.resetTime) * 1.0E-9);
+    }
+
+    private static long getQueued(final PrioritisedExecutor executor) {
+        return Math.max(0L, executor.getTotalTasksScheduled() - executor.getTotalTasksExecuted());
+    }
+
+    @Override
+    public Map<String, Long> getQueueDepths(final World world) {
+        final ChunkTaskScheduler scheduler = ((ChunkSystemServerLevel)((CraftWorld)world).getHandle()).moonrise$getChunkTaskScheduler();
+        final Map<String, Long> ret = new LinkedHashMap<>();
+        ret.put("parallel-gen", getQueued(scheduler.parallelGenExecutor));
+        ret.put("load", getQueued(scheduler.loadExecutor));
+        ret.put("compression", getQueued(scheduler.compressionExecutor));
+        ret.put("save", getQueued(scheduler.saveExecutor));
+        ret.put("io", getQueued(scheduler.ioExecutor));
+        for (final MoonriseRegionFileIO.RegionFileType type : MoonriseRegionFileIO.RegionFileType.values()) {
+            ret.put(
+                "io-tasks/" + type.name().toLowerCase(Locale.ROOT),
+                MoonriseRegionFileIO.getControllerFor(((CraftWorld)world).getHandle(), type).getTotalWorkingTasks()
+            );
+        }
+        final ChunkPacketBlockControllerAntiXray antiXray = getAntiXray(world);
+        if (antiXray != null) {
+            ret.put("anti-xray", (long)antiXray.getQueuedObfuscations());
+        }
+        return Collections.unmodifiableMap(ret);
+    }
+
+    @Override
+    public void reset() {
+        this.resetTime = System.nanoTime();
+        for (final Timer timer : TIMERS.values()) {
+            timer.reset();
+        }
+        for (final ServerLevel level : MinecraftServer.getServer().getAllLevels()) {
+            if (level.chunkPacketBlockController instanceof ChunkPacketBlockControllerAntiXray antiXray) {
+                antiXray.getObfuscationTimer().reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.papermc.paper.world.storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Handles the custom (id 127) region file compression version. Chunks stored with it are prefixed with the
+ * id of the compression algorithm, which is used to pick the decoder when reading them back.
+ */
+public final class CustomRegionCompression {
+
+    public static final int VERSION_ID = 127;
+
+    private static final Map<String, StreamWrapper<InputStream>> DECODERS = new ConcurrentHashMap<>();
+
+    static {
+        register(ZstdRegionCompression.ID, ZstdRegionCompression::wrapInput);
+    }
+
+    private CustomRegionCompression() {
+    }
+
+    public static void register(final String id, final StreamWrapper<InputStream> decoder) {
+        if (DECODERS.putIfAbsent(id, decoder) != null) {
+            throw new IllegalStateException("Duplicate custom region compression " + id);
+        }
+    }
+
+    public static InputStream wrapInput(final InputStream input) throws IOException {
+        final String id = new DataInputStream(input).readUTF();
+        final StreamWrapper<InputStream> decoder = DECODERS.get(id);
+        if (decoder == null) {
+            throw new IOException("Unrecognized custom region compression " + id);
+        }
+
+        return decoder.wrap(input);
+    }
+
+    public static OutputStream writeHeader(final String id, final OutputStream output) throws IOException {
+        new DataOutputStream(output).writeUTF(id);
+        return output;
+    }
+
+    @FunctionalInterface
+    public interface StreamWrapper<S> {
+        S wrap(S stream) throws IOException;
+    }
+}
@@ -0,0 +1,174 @@
+package io.papermc.paper.world.storage;
+
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongBidirectionalIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+/**
+ * Bounds the region files kept open by all {@link net.minecraft.world.level.chunk.storage.RegionFileStorage}s
+ * by file descriptors, and keeps memory usage, hit, miss and eviction statistics.
+ * <p>
+ * Storages only ever evict their own region files, so that no storage needs to lock another. When full, the least
+ * recently used region file that is not in use is evicted, where regions near players are evicted last, based on the
+ * player regions published by the player chunk loader. A storage never evicts below a few open region files, so that
+ * small storages do not keep reopening their files while a larger storage fills the cache.
+ * </p>
+ */
+public final class RegionFileCacheLimiter {
+
+    // used when the file descriptor limit of the process is unknown
+    private static final int DEFAULT_MAX_OPEN_FILES = 1024;
+    private static final int MIN_AUTO_MAX_OPEN_FILES = 64;
+    private static final int MAX_AUTO_MAX_OPEN_FILES = 4096;
+    private static final int AUTO_MAX_OPEN_FILES = computeAutoMaxOpenFiles();
+    // header, oversized flags and object overhead of a RegionFile
+    private static final long BASE_MEMORY_USAGE = 8192L + 1024L + 512L;
+    // only look at the least recently used regions when choosing which one to evict
+    private static final int EVICTION_SCAN_LIMIT = 16;
+    // region files each storage may keep open even if the cache is full
+    private static final int MIN_OPEN_FILES_PER_STORAGE = 4;
+    /**
+     * Returned by {@link #selectEviction} if all region files are in use. Not a valid region key, as no region
+     * has this z coordinate.
+     */
+    public static final long NO_EVICTION = Long.MIN_VALUE;
+
+    private static final AtomicInteger OPEN_FILES = new AtomicInteger();
+    private static final AtomicLong MEMORY_USAGE = new AtomicLong();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static final Map<ResourceKey<Level>, LongSet> PLAYER_REGIONS = new ConcurrentHashMap<>();
+
+    private RegionFileCacheLimiter() {
+    }
+
+    public record Stats(int openFiles, int maxOpenFiles, long memoryUsage, long hits, long misses, long evictions) {
+
+        public double hitRate() {
+            final long total = this.hits + this.misses;
+            return total == 0L ? 0.0 : (double)this.hits / (double)total;
+        }
+    }
+
+    private static int computeAutoMaxOpenFiles() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.UnixOperatingSystemMXBean unix) {
+            // leave most descriptors to connections, plugins and other files
+            return Math.clamp(unix.getMaxFileDescriptorCount() / 4L, MIN_AUTO_MAX_OPEN_FILES, MAX_AUTO_MAX_OPEN_FILES);
+        }
+        return DEFAULT_MAX_OPEN_FILES;
+    }
+
+    public static int getMaxOpenFiles() {
+        final int configured = GlobalConfiguration.get().chunkSystem.regionFileCache.maxOpenFiles;
+        return configured > 0 ? configured : AUTO_MAX_OPEN_FILES;
+    }
+
+    public static boolean isFull() {
+        return OPEN_FILES.get() >= getMaxOpenFiles();
+    }
+
+    /**
+     * Returns whether a storage with the specified amount of open region files should evict one before opening another.
+     */
+    public static boolean shouldEvict(final int storageOpenFiles) {
+        return storageOpenFiles >= MIN_OPEN_FILES_PER_STORAGE && isFull();
+    }
+
+    /**
+     * Estimates the heap memory used by the specified region file while it is open. Mappings of memory-mapped region
+     * files are not counted, as they are backed by the page cache of the operating system.
+     */
+    public static long estimateMemoryUsage(final Path file) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (final IOException ex) {
+            size = 0L;
+        }
+        // one bit per used sector
+        return BASE_MEMORY_USAGE + size / (4096L * 8L);
+    }
+
+    public static void onHit() {
+        HITS.increment();
+    }
+
+    public static void onOpen(final long memoryUsage) {
+        MISSES.increment();
+        OPEN_FILES.incrementAndGet();
+        MEMORY_USAGE.addAndGet(memoryUsage);
+    }
+
+    public static void onClose(final long memoryUsage, final boolean evicted) {
+        if (evicted) {
+            EVICTIONS.increment();
+        }
+        OPEN_FILES.decrementAndGet();
+        MEMORY_USAGE.addAndGet(-memoryUsage);
+    }
+
+    /**
+     * Chooses the region to evict from a cache ordered from most to least recently used, skipping regions in use.
+     * Of the least recently used regions, the first one that is not near a player is chosen, otherwise the least
+     * recently used one. Returns {@link #NO_EVICTION} if all regions are in use.
+     */
+    public static long selectEviction(final Long2ObjectLinkedOpenHashMap<?> cache, final LongSet inUse, final LongSet playerRegions) {
+        long oldest = NO_EVICTION;
+        final LongBidirectionalIterator iterator = cache.keySet().iterator(cache.lastLongKey());
+        // the iterator starts after the last key
+        for (int i = 0; iterator.hasPrevious(); ++i) {
+            final long key = iterator.previousLong();
+            if (inUse.contains(key)) {
+                continue;
+            }
+            if (!playerRegions.contains(key)) {
+                return key;
+            }
+            if (oldest == NO_EVICTION) {
+                oldest = key;
+            }
+            if (i >= EVICTION_SCAN_LIMIT) {
+                break;
+            }
+        }
+
+        return oldest;
+    }
+
+    public static LongSet getPlayerRegions(final ResourceKey<Level> dimension) {
+        return PLAYER_REGIONS.getOrDefault(dimension, LongSets.EMPTY_SET);
+    }
+
+    /**
+     * Publishes the regions (keyed like {@link net.minecraft.world.level.ChunkPos#asLong(int, int)}) within the
+     * load distance of the players in the specified dimension. Must be an immutable snapshot.
+     */
+    public static void setPlayerRegions(final ResourceKey<Level> dimension, final LongSet regions) {
+        if (regions.isEmpty()) {
+            PLAYER_REGIONS.remove(dimension);
+        } else {
+            PLAYER_REGIONS.put(dimension, regions);
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(
+            OPEN_FILES.get(), getMaxOpenFiles(), MEMORY_USAGE.get(),
+            HITS.sum(), MISSES.sum(), EVICTIONS.sum()
+        );
+    }
+}
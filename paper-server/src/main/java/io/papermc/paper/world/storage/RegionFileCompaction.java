@@ -0,0 +1,145 @@
+package io.papermc.paper.world.storage;
+
+import io.papermc.paper.util.AtomicFiles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Raw region file (.mca) operations, used by the {@link RegionFileOptimizer}.
+ * <p>
+ * None of these methods synchronise with {@link net.minecraft.world.level.chunk.storage.RegionFile}, callers
+ * must make sure the file is not being written to.
+ * </p>
+ */
+public final class RegionFileCompaction {
+
+    public static final int SECTOR_BYTES = 4096;
+    public static final int CHUNKS_PER_REGION = 32 * 32;
+    private static final int HEADER_SECTORS = 2;
+    private static final int OVERSIZED_SECTOR_COUNT = 255;
+
+    private RegionFileCompaction() {
+    }
+
+    public static int[] readOffsets(final FileChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(SECTOR_BYTES);
+        readFully(channel, header, 0L);
+        final int[] ret = new int[CHUNKS_PER_REGION];
+        header.flip().asIntBuffer().get(ret);
+        return ret;
+    }
+
+    public static int getSectorNumber(final int offset) {
+        return offset >>> 8;
+    }
+
+    public static int getSectorCount(final FileChannel channel, final int offset) throws IOException {
+        final int sectors = offset & 0xFF;
+        if (sectors != OVERSIZED_SECTOR_COUNT) {
+            return sectors;
+        }
+        // Spigot stores chunks over 255 sectors using the real length in front of the data
+        final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(channel, length, (long)getSectorNumber(offset) * SECTOR_BYTES);
+        return (length.getInt(0) + Integer.BYTES) / SECTOR_BYTES + 1;
+    }
+
+    /**
+     * Returns the compression version byte stored for the chunk with the specified header offset, with
+     * the external (oversized) flag removed, or {@code -1} if the chunk has no valid data.
+     */
+    public static int readCompressionVersion(final FileChannel channel, final int offset) throws IOException {
+        final int sector = getSectorNumber(offset);
+        if (offset == 0 || sector < HEADER_SECTORS || (long)(sector + 1) * SECTOR_BYTES > channel.size()) {
+            return -1;
+        }
+        final ByteBuffer prefix = ByteBuffer.allocate(Integer.BYTES + 1);
+        readFully(channel, prefix, (long)sector * SECTOR_BYTES);
+        if (prefix.getInt(0) <= 0) {
+            return -1;
+        }
+        return prefix.get(Integer.BYTES) & 0x7F;
+    }
+
+    /**
+     * Returns the amount of bytes that would be freed by {@link #compact(Path) compacting} the file.
+     */
+    public static long getWastedBytes(final FileChannel channel) throws IOException {
+        long usedSectors = HEADER_SECTORS;
+        for (final int offset : readOffsets(channel)) {
+            if (offset != 0) {
+                usedSectors += getSectorCount(channel, offset);
+            }
+        }
+        return Math.max(0L, channel.size() - usedSectors * SECTOR_BYTES);
+    }
+
+    /**
+     * Rewrites the region file so that all chunks are stored back to back in header order, dropping
+     * any free sectors.
+     *
+     * @return the new size of the file
+     */
+    public static long compact(final Path file) throws IOException {
+        try (final FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = in.size();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_BYTES);
+            readFully(in, header, 0L);
+
+            AtomicFiles.atomicWrite(file, tmp -> {
+                try (final FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    int nextSector = HEADER_SECTORS;
+                    for (int i = 0; i < CHUNKS_PER_REGION; ++i) {
+                        final int offset = header.getInt(i * Integer.BYTES);
+                        if (offset == 0) {
+                            continue;
+                        }
+
+                        final int sector = getSectorNumber(offset);
+                        final int sectors = getSectorCount(in, offset);
+                        final long from = (long)sector * SECTOR_BYTES;
+                        if (sector < HEADER_SECTORS || sectors == 0 || from >= size) {
+                            // leave corrupt headers to the recovery logic in RegionFile
+                            throw new IOException("Region file " + file + " has an invalid sector offset at index " + i + ", not compacting");
+                        }
+
+                        final long length = Math.min((long)sectors * SECTOR_BYTES, size - from);
+                        long transferred = 0L;
+                        out.position((long)nextSector * SECTOR_BYTES);
+                        while (transferred < length) {
+                            transferred += in.transferTo(from + transferred, length - transferred, out);
+                        }
+
+                        header.putInt(i * Integer.BYTES, (nextSector << 8) | Math.min(sectors, OVERSIZED_SECTOR_COUNT));
+                        nextSector += sectors;
+                    }
+
+                    // pad to a full sector, like RegionFile does when closing
+                    final long end = (long)nextSector * SECTOR_BYTES;
+                    if (out.size() < end) {
+                        out.write(ByteBuffer.allocate(1), end - 1L);
+                    }
+                    header.clear();
+                    while (header.hasRemaining()) {
+                        out.write(header, header.position());
+                    }
+                    out.force(true);
+                }
+            });
+        }
+
+        return Files.size(file);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of region file");
+            }
+        }
+    }
+}
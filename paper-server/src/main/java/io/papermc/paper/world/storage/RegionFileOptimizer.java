@@ -0,0 +1,255 @@
+package io.papermc.paper.world.storage;
+
+import ca.spottedleaf.concurrentutil.util.Priority;
+import ca.spottedleaf.moonrise.patches.chunk_system.io.MoonriseRegionFileIO;
+import com.mojang.logging.LogUtils;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionFileStorage;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Rewrites every chunk of a world that is not stored in the configured region compression format, and
+ * compacts region files with free sectors.
+ * <p>
+ * Work is queued one region row at a time in the I/O queue of the region file at idle priority, so chunk
+ * loads and saves are always processed first and never run while a region file is rewritten or compacted.
+ * </p>
+ */
+public final class RegionFileOptimizer {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    private static final Pattern REGION_FILE_NAME = Pattern.compile("^r\\.(-?\\d+)\\.(-?\\d+)\\.mca$");
+    private static final int REGION_SIZE = 32;
+    private static final long MIN_WASTED_BYTES = 64L * RegionFileCompaction.SECTOR_BYTES;
+    private static final Map<ServerLevel, RegionFileOptimizer> RUNNING = new ConcurrentHashMap<>();
+
+    public record Result(int regionFiles, long chunksRewritten, long bytesBefore, long bytesAfter) {
+
+        public long bytesSaved() {
+            return this.bytesBefore - this.bytesAfter;
+        }
+    }
+
+    private record Region(MoonriseRegionFileIO.RegionFileType type, RegionFileStorage storage, Path folder, Path file, int regionX, int regionZ) {}
+
+    private final ServerLevel world;
+    private final ArrayDeque<Region> regions;
+    private final CompletableFuture<Result> result = new CompletableFuture<>();
+
+    // only accessed by the currently running step, steps never run concurrently
+    private @Nullable FileChannel channel;
+    private int row;
+    private int regionFiles;
+    private long chunksRewritten;
+    private long bytesBefore;
+    private long bytesAfter;
+
+    private RegionFileOptimizer(final ServerLevel world, final ArrayDeque<Region> regions) {
+        this.world = world;
+        this.regions = regions;
+    }
+
+    public static boolean isRunning(final ServerLevel world) {
+        return RUNNING.containsKey(world);
+    }
+
+    /**
+     * Starts optimizing the chunk, entity and poi region files of the specified world.
+     *
+     * @return the result of the optimization, or {@code null} if the world is already being optimized
+     */
+    public static @Nullable CompletableFuture<Result> optimize(final ServerLevel world) throws IOException {
+        final ArrayDeque<Region> regions = new ArrayDeque<>();
+        for (final MoonriseRegionFileIO.RegionFileType type : MoonriseRegionFileIO.RegionFileType.values()) {
+            final Path folder = world.levelStorageAccess.getDimensionPath(world.dimension()).resolve(switch (type) {
+                case CHUNK_DATA -> "region";
+                case POI_DATA -> "poi";
+                case ENTITY_DATA -> "entities";
+            });
+            if (!Files.isDirectory(folder)) {
+                continue;
+            }
+            final RegionFileStorage storage = MoonriseRegionFileIO.getControllerFor(world, type).getCache();
+            try (final Stream<Path> files = Files.list(folder)) {
+                for (final Path file : (Iterable<Path>)files::iterator) {
+                    final Matcher matcher = REGION_FILE_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        regions.add(new Region(type, storage, folder, file, Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+                    }
+                }
+            }
+        }
+
+        final RegionFileOptimizer optimizer = new RegionFileOptimizer(world, regions);
+        if (RUNNING.putIfAbsent(world, optimizer) != null) {
+            return null;
+        }
+        optimizer.result.whenComplete((result, throwable) -> RUNNING.remove(world, optimizer));
+        optimizer.scheduleStep();
+        return optimizer.result;
+    }
+
+    /**
+     * Stops optimizing the region files of the specified world, completing the result exceptionally. Called when the
+     * world is unloaded, as its I/O queues do not run the remaining steps afterwards.
+     */
+    public static void cancel(final ServerLevel world) {
+        final RegionFileOptimizer optimizer = RUNNING.remove(world);
+        if (optimizer != null) {
+            optimizer.result.completeExceptionally(new CancellationException("World '" + world.getWorld().getName() + "' was unloaded"));
+        }
+    }
+
+    private void scheduleStep() {
+        final Region region = this.regions.peek();
+        if (region == null) {
+            final Result result = new Result(this.regionFiles, this.chunksRewritten, this.bytesBefore, this.bytesAfter);
+            LOGGER.info("Optimized {} region files for world '{}', rewrote {} chunks and saved {} bytes", result.regionFiles(), this.world.getWorld().getName(), result.chunksRewritten(), result.bytesSaved());
+            this.result.complete(result);
+            return;
+        }
+
+        try {
+            MoonriseRegionFileIO.scheduleRegionTask(
+                this.world, region.regionX() * REGION_SIZE, region.regionZ() * REGION_SIZE, region.type(), () -> this.step(region), Priority.IDLE
+            );
+        } catch (final Throwable thr) {
+            this.closeChannel(region);
+            this.result.completeExceptionally(thr);
+        }
+    }
+
+    private void step(final Region region) {
+        if (this.result.isDone()) {
+            // cancelled
+            this.closeChannel(region);
+            return;
+        }
+
+        try {
+            if (this.channel == null) {
+                this.channel = FileChannel.open(region.file(), StandardOpenOption.READ);
+                this.bytesBefore += this.channel.size();
+            }
+
+            if (this.row < REGION_SIZE) {
+                this.rewriteRow(region, this.row++);
+            } else {
+                this.compact(region);
+                this.finishRegion(region);
+            }
+        } catch (final Throwable thr) {
+            LOGGER.error("Failed to optimize region file " + region.file(), thr);
+            this.finishRegion(region);
+        }
+
+        this.scheduleStep();
+    }
+
+    private void finishRegion(final Region region) {
+        this.regions.poll();
+        this.row = 0;
+        ++this.regionFiles;
+        this.closeChannel(region);
+        try {
+            this.bytesAfter += Files.exists(region.file()) ? Files.size(region.file()) : 0L;
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to read the size of region file " + region.file(), ex);
+        }
+    }
+
+    private void closeChannel(final Region region) {
+        try {
+            if (this.channel != null) {
+                this.channel.close();
+            }
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to close region file " + region.file(), ex);
+        } finally {
+            this.channel = null;
+        }
+    }
+
+    private void rewriteRow(final Region region, final int row) throws IOException {
+        final int targetVersion = RegionFileVersion.getCompressionFormat(region.folder()).getId();
+        final int[] offsets = RegionFileCompaction.readOffsets(this.channel);
+        final List<ChunkPos> toRewrite = new ArrayList<>();
+        for (int x = 0; x < REGION_SIZE; ++x) {
+            final int version = RegionFileCompaction.readCompressionVersion(this.channel, offsets[x + row * REGION_SIZE]);
+            if (version != -1 && version != targetVersion) {
+                toRewrite.add(new ChunkPos((region.regionX() * REGION_SIZE) | x, (region.regionZ() * REGION_SIZE) | row));
+            }
+        }
+
+        if (toRewrite.isEmpty()) {
+            return;
+        }
+
+        final int chunkX = region.regionX() * REGION_SIZE;
+        final int chunkZ = region.regionZ() * REGION_SIZE;
+        final RegionFile regionFile = region.storage().acquireRegionFile(chunkX, chunkZ, true);
+        if (regionFile == null) {
+            return;
+        }
+
+        try {
+            // no chunk of this region is saved while this task runs, so the header read above is current
+            for (final ChunkPos pos : toRewrite) {
+                final byte[] data;
+                try (final DataInputStream input = regionFile.getChunkDataInputStream(pos)) {
+                    if (input == null) {
+                        continue;
+                    }
+                    data = input.readAllBytes();
+                }
+                try (final DataOutputStream output = regionFile.getChunkDataOutputStream(pos)) {
+                    output.write(data);
+                }
+                ++this.chunksRewritten;
+            }
+        } finally {
+            region.storage().releaseRegionFile(chunkX, chunkZ);
+        }
+    }
+
+    private void compact(final Region region) throws IOException {
+        if (RegionFileCompaction.getWastedBytes(this.channel) < MIN_WASTED_BYTES) {
+            return;
+        }
+
+        // runs in the I/O queue of the region, so the chunk system does not use the region file meanwhile, and the
+        // storage does not open it again until it is replaced
+        if (!region.storage().startRegionFileReplacement(region.regionX(), region.regionZ())) {
+            LOGGER.info("Skipping compaction of region file {}, it is in use", region.file());
+            return;
+        }
+        try {
+            this.channel.close();
+            this.channel = null;
+            RegionFileCompaction.compact(region.file());
+        } finally {
+            region.storage().finishRegionFileReplacement(region.regionX(), region.regionZ());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package io.papermc.paper.world.storage;
+
+import ca.spottedleaf.moonrise.common.util.CoordinateUtils;
+import ca.spottedleaf.moonrise.common.util.WorldUtil;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import net.minecraft.SharedConstants;
+import net.minecraft.Util;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtAccounterException;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.level.ChunkLevel;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.Ticket;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.util.SortedArraySet;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.storage.SerializableChunkData;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Snapshot of the chunk data of the chunks kept loaded by spawn, forced and plugin tickets, written when a world
+ * is closed and read in bulk when it is loaded again, so that these chunks do not have to be read from their
+ * region files one by one on startup.
+ * <p>
+ * The snapshot holds the chunk data as it was saved to the region files, including the light data, and is bounded
+ * by its estimated size in memory. It is only used for the regions whose files were not modified since it was
+ * written, and it is deleted once it is read. The snapshot is read in the background while the world loads, and
+ * the data of chunks which were not loaded shortly after startup is dropped.
+ * </p>
+ */
+public final class WarmChunkSnapshot {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    public static final String FILE_NAME = "paper_warm_chunks.dat";
+    private static final long MAX_BYTES = 64L * 1024L * 1024L;
+    // leaves room for the region list and differences in how tags are accounted when read
+    private static final long MAX_READ_BYTES = 2L * MAX_BYTES;
+    private static final long EXPIRE_TIME = TimeUnit.MINUTES.toNanos(5L);
+    private static final Set<TicketType<?>> WARM_TICKET_TYPES = Set.of(
+        TicketType.START, TicketType.FORCED, TicketType.PLUGIN, TicketType.PLUGIN_TICKET
+    );
+
+    private final Long2ObjectOpenHashMap<CompoundTag> chunks = new Long2ObjectOpenHashMap<>();
+    private final CompletableFuture<Void> loaded;
+    private volatile boolean dropped;
+
+    private WarmChunkSnapshot(final @Nullable ServerLevel world) {
+        if (world == null) {
+            this.dropped = true;
+            this.loaded = CompletableFuture.completedFuture(null);
+            return;
+        }
+        this.loaded = CompletableFuture.runAsync(() -> this.read(world), Util.ioPool());
+        CompletableFuture.delayedExecutor(EXPIRE_TIME, TimeUnit.NANOSECONDS).execute(() -> this.drop(world));
+    }
+
+    public static boolean isEnabled() {
+        return GlobalConfiguration.get().chunkSystem.warmChunkSnapshot;
+    }
+
+    private static Path getFile(final ServerLevel world) {
+        return world.levelStorageAccess.getDimensionPath(world.dimension()).resolve(FILE_NAME);
+    }
+
+    private static Path getRegionFile(final ServerLevel world, final long regionKey) {
+        return world.levelStorageAccess.getDimensionPath(world.dimension()).resolve("region").resolve(
+            "r." + CoordinateUtils.getChunkX(regionKey) + "." + CoordinateUtils.getChunkZ(regionKey) + ".mca"
+        );
+    }
+
+    private static long getRegionKey(final int chunkX, final int chunkZ) {
+        return CoordinateUtils.getChunkKey(chunkX >> 5, chunkZ >> 5);
+    }
+
+    /**
+     * Returns the full loaded chunks within the range of a spawn, forced or plugin ticket.
+     */
+    public static List<LevelChunk> collectWarmChunks(final Long2ObjectMap<SortedArraySet<Ticket<?>>> tickets,
+                                                     final LongFunction<@Nullable LevelChunk> getFullChunk) {
+        final LongSet seen = new LongOpenHashSet();
+        final List<LevelChunk> ret = new ArrayList<>();
+        for (final Long2ObjectMap.Entry<SortedArraySet<Ticket<?>>> entry : tickets.long2ObjectEntrySet()) {
+            int radius = -1;
+            for (final Ticket<?> ticket : entry.getValue()) {
+                if (WARM_TICKET_TYPES.contains(ticket.getType())) {
+                    radius = Math.max(radius, ChunkLevel.FULL_CHUNK_LEVEL - ticket.getTicketLevel());
+                }
+            }
+
+            final int centerX = CoordinateUtils.getChunkX(entry.getLongKey());
+            final int centerZ = CoordinateUtils.getChunkZ(entry.getLongKey());
+            for (int dz = -radius; dz <= radius; ++dz) {
+                for (int dx = -radius; dx <= radius; ++dx) {
+                    final long chunkKey = CoordinateUtils.getChunkKey(centerX + dx, centerZ + dz);
+                    if (!seen.add(chunkKey)) {
+                        continue;
+                    }
+                    final LevelChunk chunk = getFullChunk.apply(chunkKey);
+                    if (chunk != null) {
+                        ret.add(chunk);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Serializes the specified chunks for the snapshot, until its size limit is reached. The chunks must have been
+     * saved, so that the serialized data matches the data in their region files. Must be called on the main thread.
+     */
+    public static ListTag serializeChunks(final ServerLevel world, final List<LevelChunk> chunks) {
+        final ListTag ret = new ListTag();
+        long bytes = 0L;
+        for (final LevelChunk chunk : chunks) {
+            final CompoundTag data;
+            try {
+                data = SerializableChunkData.copyOf(world, chunk).write();
+            } catch (final Throwable thr) {
+                LOGGER.error("Failed to serialize chunk " + chunk.getPos() + " for the warm chunk snapshot of world '" + WorldUtil.getWorldName(world) + "'", thr);
+                continue;
+            }
+            bytes += data.sizeInBytes();
+            if (bytes > MAX_BYTES) {
+                LOGGER.warn("Only including " + ret.size() + " of " + chunks.size() + " chunks in the warm chunk snapshot of world '" + WorldUtil.getWorldName(world) + "', as it would exceed " + (MAX_BYTES / (1024L * 1024L)) + "MiB");
+                break;
+            }
+            ret.add(data);
+        }
+        return ret;
+    }
+
+    /**
+     * Writes the snapshot of the specified chunk data. Must be called after the region files were closed, so that
+     * their modification times are final.
+     */
+    public static void write(final ServerLevel world, final ListTag chunks) {
+        final Path file = getFile(world);
+        if (chunks.isEmpty()) {
+            delete(file);
+            return;
+        }
+
+        final CompoundTag root = new CompoundTag();
+        root.putInt("DataVersion", SharedConstants.getCurrentVersion().getDataVersion().getVersion());
+
+        final ListTag regions = new ListTag();
+        final LongSet seenRegions = new LongOpenHashSet();
+        for (final Tag tag : chunks) {
+            final CompoundTag chunk = (CompoundTag)tag;
+            final long regionKey = getRegionKey(chunk.getInt("xPos"), chunk.getInt("zPos"));
+            if (!seenRegions.add(regionKey)) {
+                continue;
+            }
+            final CompoundTag region = new CompoundTag();
+            region.putLong("Key", regionKey);
+            try {
+                region.putLong("LastModified", Files.getLastModifiedTime(getRegionFile(world, regionKey)).toMillis());
+            } catch (final IOException ex) {
+                // chunks of this region will not be used
+                continue;
+            }
+            regions.add(region);
+        }
+        root.put("Regions", regions);
+        root.put("Chunks", chunks);
+
+        final Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            NbtIo.writeCompressed(root, tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to write the warm chunk snapshot of world '" + WorldUtil.getWorldName(world) + "'", ex);
+            delete(tmp);
+            return;
+        }
+
+        LOGGER.info("Wrote warm chunk snapshot of " + chunks.size() + " chunks for world '" + WorldUtil.getWorldName(world) + "'");
+    }
+
+    /**
+     * Starts reading the snapshot of the specified world in the background. If the snapshot is disabled, any snapshot
+     * left over is deleted and an empty snapshot is returned.
+     */
+    public static WarmChunkSnapshot load(final ServerLevel world) {
+        if (!isEnabled()) {
+            delete(getFile(world));
+            return new WarmChunkSnapshot(null);
+        }
+        return new WarmChunkSnapshot(world);
+    }
+
+    /**
+     * Removes and returns the snapshot data of the specified chunk, or {@code null} if the snapshot does not contain
+     * the chunk. Waits for the snapshot to be read, so that chunks loaded on startup do not read their region files.
+     */
+    public @Nullable CompoundTag take(final int chunkX, final int chunkZ) {
+        if (this.dropped) {
+            return null;
+        }
+        this.loaded.join();
+        synchronized (this.chunks) {
+            return this.chunks.remove(CoordinateUtils.getChunkKey(chunkX, chunkZ));
+        }
+    }
+
+    private void drop(final ServerLevel world) {
+        final int unused;
+        synchronized (this.chunks) {
+            this.dropped = true;
+            unused = this.chunks.size();
+            this.chunks.clear();
+            this.chunks.trim();
+        }
+        if (unused != 0) {
+            LOGGER.info("Dropped " + unused + " unused chunks of the warm chunk snapshot of world '" + WorldUtil.getWorldName(world) + "'");
+        }
+    }
+
+    // reads and deletes the snapshot, keeping the chunk data of the chunks whose region files were not modified since
+    // it was written
+    private void read(final ServerLevel world) {
+        final Path file = getFile(world);
+        final CompoundTag root;
+        try {
+            root = NbtIo.readCompressed(file, NbtAccounter.create(MAX_READ_BYTES));
+        } catch (final NoSuchFileException ex) {
+            return;
+        } catch (final IOException | NbtAccounterException ex) {
+            LOGGER.error("Failed to read the warm chunk snapshot of world '" + WorldUtil.getWorldName(world) + "'", ex);
+            delete(file);
+            return;
+        }
+        // a later write to the region files would make the snapshot stale
+        delete(file);
+
+        if (root.getInt("DataVersion") != SharedConstants.getCurrentVersion().getDataVersion().getVersion()) {
+            return;
+        }
+
+        final LongSet validRegions = new LongOpenHashSet();
+        for (final Tag tag : root.getList("Regions", Tag.TAG_COMPOUND)) {
+            final CompoundTag region = (CompoundTag)tag;
+            final long regionKey = region.getLong("Key");
+            try {
+                if (Files.getLastModifiedTime(getRegionFile(world, regionKey)).toMillis() == region.getLong("LastModified")) {
+                    validRegions.add(regionKey);
+                }
+            } catch (final IOException ex) {
+                // region file is gone
+            }
+        }
+
+        final int count;
+        synchronized (this.chunks) {
+            if (this.dropped) {
+                return;
+            }
+            for (final Tag tag : root.getList("Chunks", Tag.TAG_COMPOUND)) {
+                final CompoundTag chunk = (CompoundTag)tag;
+                final int chunkX = chunk.getInt("xPos");
+                final int chunkZ = chunk.getInt("zPos");
+                if (validRegions.contains(getRegionKey(chunkX, chunkZ))) {
+                    this.chunks.put(CoordinateUtils.getChunkKey(chunkX, chunkZ), chunk);
+                }
+            }
+            count = this.chunks.size();
+        }
+
+        LOGGER.info("Loaded warm chunk snapshot of " + count + " chunks for world '" + WorldUtil.getWorldName(world) + "'");
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException ex) {
+            LOGGER.warn("Failed to delete " + file, ex);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package io.papermc.paper.world.storage;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.util.AtomicFiles;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.minecraft.Util;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Zstandard region file compression, stored using the custom region file compression version.
+ * <p>
+ * Each region folder (region, entities, poi) may have a trained dictionary stored next to it as
+ * {@code <folder>.zstd.dict}. The id of the dictionary used is written in front of every chunk, so
+ * chunks written before a dictionary existed remain readable.
+ * </p>
+ */
+public final class ZstdRegionCompression {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    public static final String ID = "paper:zstd";
+    public static final String DICTIONARY_SUFFIX = ".zstd.dict";
+
+    private static final int NO_DICTIONARY = 0;
+    private static final int DICTIONARY_SIZE = 112 * 1024;
+    private static final int TRAINING_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_SAMPLE_SIZE = 512 * 1024;
+
+    private static final Map<Path, Folder> FOLDERS = new ConcurrentHashMap<>();
+    private static final Int2ObjectMap<ZstdDictDecompress> DECOMPRESS_DICTIONARIES = Int2ObjectMaps.synchronize(new Int2ObjectOpenHashMap<>());
+
+    private ZstdRegionCompression() {
+    }
+
+    public static Folder forFolder(final Path folder) {
+        return FOLDERS.computeIfAbsent(folder.toAbsolutePath().normalize(), Folder::new);
+    }
+
+    static InputStream wrapInput(final InputStream input) throws IOException {
+        final int dictionaryId = new DataInputStream(input).readInt();
+        ZstdDictDecompress dictionary = null;
+        if (dictionaryId != NO_DICTIONARY) {
+            dictionary = DECOMPRESS_DICTIONARIES.get(dictionaryId);
+            if (dictionary == null) {
+                throw new IOException("Missing zstd dictionary " + Integer.toUnsignedString(dictionaryId) + ", was the " + DICTIONARY_SUFFIX + " file next to the region folder removed?");
+            }
+        }
+
+        final ZstdInputStreamNoFinalizer zstd = new ZstdInputStreamNoFinalizer(input);
+        if (dictionary != null) {
+            zstd.setDict(dictionary);
+        }
+        return new FastBufferedInputStream(zstd);
+    }
+
+    private record Dictionary(int id, int level, ZstdDictCompress compress, byte[] data) {
+
+        Dictionary withLevel(final int level) {
+            return level == this.level ? this : new Dictionary(this.id, level, new ZstdDictCompress(this.data, level), this.data);
+        }
+    }
+
+    public static final class Folder {
+
+        private final Path folder;
+        private final Path dictionaryPath;
+        private final RegionFileVersion version;
+        private volatile @Nullable Dictionary dictionary;
+
+        // guarded by this
+        private @Nullable ZstdDictTrainer trainer;
+        private long sampledBytes;
+        private boolean trainingStarted;
+
+        private Folder(final Path folder) {
+            this.folder = folder;
+            this.dictionaryPath = folder.resolveSibling(folder.getFileName() + DICTIONARY_SUFFIX);
+            this.version = RegionFileVersion.createCustom(this::wrapOutput);
+            this.loadDictionary();
+        }
+
+        public RegionFileVersion version() {
+            return this.version;
+        }
+
+        public boolean hasDictionary() {
+            return this.dictionary != null;
+        }
+
+        private void loadDictionary() {
+            if (!Files.isRegularFile(this.dictionaryPath)) {
+                return;
+            }
+
+            try {
+                this.setDictionary(Files.readAllBytes(this.dictionaryPath));
+            } catch (final IOException ex) {
+                LOGGER.error("Failed to read zstd dictionary " + this.dictionaryPath, ex);
+            }
+        }
+
+        private void setDictionary(final byte[] data) {
+            final int id = (int)Zstd.getDictIdFromDict(data);
+            if (id == NO_DICTIONARY) {
+                LOGGER.error("Ignoring zstd dictionary {}, it was not created by the zstd dictionary trainer", this.dictionaryPath);
+                return;
+            }
+
+            final int level = GlobalConfiguration.get().unsupportedSettings.zstdCompressionLevel;
+            DECOMPRESS_DICTIONARIES.put(id, new ZstdDictDecompress(data));
+            this.dictionary = new Dictionary(id, level, new ZstdDictCompress(data, level), data);
+        }
+
+        private OutputStream wrapOutput(final OutputStream output) throws IOException {
+            final GlobalConfiguration.UnsupportedSettings config = GlobalConfiguration.get().unsupportedSettings;
+            final int level = config.zstdCompressionLevel;
+
+            Dictionary dictionary = this.dictionary;
+            if (dictionary != null && dictionary.level() != level) {
+                this.dictionary = dictionary = dictionary.withLevel(level);
+            }
+
+            new DataOutputStream(CustomRegionCompression.writeHeader(ID, output)).writeInt(dictionary == null ? NO_DICTIONARY : dictionary.id());
+
+            final ZstdOutputStreamNoFinalizer zstd = new ZstdOutputStreamNoFinalizer(output, level);
+            if (dictionary != null) {
+                zstd.setDict(dictionary.compress());
+                return new BufferedOutputStream(zstd);
+            }
+
+            return new BufferedOutputStream(config.zstdTrainDictionaries ? new SamplingOutputStream(zstd) : zstd);
+        }
+
+        private synchronized void addSample(final byte[] sample) {
+            if (this.trainingStarted || this.dictionary != null) {
+                return;
+            }
+
+            if (this.trainer == null) {
+                this.trainer = new ZstdDictTrainer(TRAINING_BYTES, DICTIONARY_SIZE);
+            }
+
+            if (this.trainer.addSample(sample)) {
+                this.sampledBytes += sample.length;
+                if (this.sampledBytes < TRAINING_BYTES - MAX_SAMPLE_SIZE) {
+                    return;
+                }
+            }
+
+            final ZstdDictTrainer trainer = this.trainer;
+            this.trainer = null;
+            this.trainingStarted = true;
+            Util.backgroundExecutor().execute(() -> this.train(trainer));
+        }
+
+        private void train(final ZstdDictTrainer trainer) {
+            try {
+                final byte[] data = trainer.trainSamples();
+                AtomicFiles.atomicWrite(this.dictionaryPath, tmp -> Files.write(tmp, data));
+                this.setDictionary(data);
+                LOGGER.info("Trained zstd dictionary for {} ({} bytes)", this.folder, data.length);
+            } catch (final Throwable thr) {
+                // don't retry until restart, training would most likely fail again on the same kind of data
+                LOGGER.error("Failed to train zstd dictionary for " + this.folder, thr);
+            }
+        }
+
+        private final class SamplingOutputStream extends FilterOutputStream {
+
+            private final ByteArrayOutputStream sample = new ByteArrayOutputStream(8192);
+            private boolean oversized;
+
+            private SamplingOutputStream(final OutputStream out) {
+                super(out);
+            }
+
+            private boolean canSample(final int len) {
+                if (!this.oversized && this.sample.size() + len > MAX_SAMPLE_SIZE) {
+                    this.oversized = true;
+                }
+                return !this.oversized;
+            }
+
+            @Override
+            public void write(final int b) throws IOException {
+                this.out.write(b);
+                if (this.canSample(1)) {
+                    this.sample.write(b);
+                }
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                this.out.write(b, off, len);
+                if (this.canSample(len)) {
+                    this.sample.write(b, off, len);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if (!this.oversized && this.sample.size() > 0) {
+                    Folder.this.addSample(this.sample.toByteArray());
+                }
+            }
+        }
+    }
+}
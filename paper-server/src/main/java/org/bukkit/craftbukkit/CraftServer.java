@@ -1506,6 +1506,7 @@ public final class CraftServer implements Server {
             return false;
         }
 
+        io.papermc.paper.world.storage.RegionFileOptimizer.cancel(handle); // Paper - Region file optimizer
         try {
             if (save) {
                 handle.save(null, true, false); // Paper - Fix saving in unloadWorld
@@ -3255,6 +3256,24 @@ public final class CraftServer implements Server {
         return net.minecraft.server.MinecraftServer.currentTick;
     }
 
+    // Paper start - chunk system metrics API
+    @Override
+    public io.papermc.paper.world.ChunkSystemMetrics getChunkSystemMetrics() {
+        return io.papermc.paper.world.PaperChunkSystemMetrics.INSTANCE;
+    }
+    // Paper end - chunk system metrics API
+
+    // Paper start - packet statistics API
+    @Override
+    public io.papermc.paper.network.PacketStatistics getPacketStatistics() {
+        final List<io.papermc.paper.network.PaperPacketStatistics> statistics = new ArrayList<>(this.playerList.players.size());
+        for (final ServerPlayer player : this.playerList.players) {
+            statistics.add(io.papermc.paper.network.PaperPacketStatistics.get(player.connection.connection.channel));
+        }
+        return io.papermc.paper.network.PaperPacketStatistics.sum(statistics);
+    }
+    // Paper end - packet statistics API
+
     @Override
     public boolean isStopping() {
         return net.minecraft.server.MinecraftServer.getServer().hasStopped();
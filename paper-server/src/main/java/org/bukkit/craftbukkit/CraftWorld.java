@@ -2459,6 +2459,24 @@ public class CraftWorld extends CraftRegionAccessor implements World {
         FeatureHooks.setSendViewDistance(this.world, viewDistance); // Paper - chunk system
     }
 
+    // Paper start - chunk pre-generation API
+    @Override
+    public io.papermc.paper.world.ChunkPregeneration startChunkPregeneration(final int centerChunkX, final int centerChunkZ, final int radius) {
+        Preconditions.checkArgument(radius >= 0, "Radius must be at least 0");
+        return io.papermc.paper.world.ChunkPregenerator.start(this.world, centerChunkX, centerChunkZ, radius);
+    }
+
+    @Override
+    public io.papermc.paper.world.ChunkPregeneration resumeChunkPregeneration() {
+        return io.papermc.paper.world.ChunkPregenerator.resume(this.world);
+    }
+
+    @Override
+    public io.papermc.paper.world.ChunkPregeneration getChunkPregeneration() {
+        return io.papermc.paper.world.ChunkPregenerator.getRunning(this.world);
+    }
+    // Paper end - chunk pre-generation API
+
     // Paper start - implement pointers
     @Override
     public net.kyori.adventure.pointer.Pointers pointers() {
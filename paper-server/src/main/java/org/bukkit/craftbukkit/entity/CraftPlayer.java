@@ -3583,4 +3583,14 @@ public class CraftPlayer extends CraftHumanEntity implements Player {
         this.getHandle().connection.send(new net.minecraft.network.protocol.game.ClientboundEntityEventPacket(((CraftEntity) target).getHandle(), effect.getData()));
     }
     // Paper end - entity effect API
+
+    // Paper start - packet statistics API
+    @Override
+    public io.papermc.paper.network.PacketStatistics getPacketStatistics() {
+        if (this.getHandle().connection == null) {
+            return io.papermc.paper.network.PaperPacketStatistics.EMPTY;
+        }
+        return io.papermc.paper.network.PaperPacketStatistics.get(this.getHandle().connection.connection.channel);
+    }
+    // Paper end - packet statistics API
 }
@@ -245,6 +245,13 @@ public class SpigotWorldConfig {
         this.tickInactiveVillagers = this.getBoolean("entity-activation-range.tick-inactive-villagers", this.tickInactiveVillagers);
         this.ignoreSpectatorActivation = this.getBoolean("entity-activation-range.ignore-spectators", this.ignoreSpectatorActivation);
         this.log("Entity Activation Range: An " + this.animalActivationRange + " / Mo " + this.monsterActivationRange + " / Ra " + this.raiderActivationRange + " / Mi " + this.miscActivationRange + " / Tiv " + this.tickInactiveVillagers + " / Isa " + this.ignoreSpectatorActivation);
+        // Paper start - Single pass entity activation
+        final int maxActivationRange = Math.max(Math.max(Math.max(this.animalActivationRange, this.monsterActivationRange), Math.max(this.raiderActivationRange, this.miscActivationRange)),
+            Math.max(Math.max(this.waterActivationRange, this.villagerActivationRange), this.flyingMonsterActivationRange));
+        if (maxActivationRange > io.papermc.paper.entity.activation.ActivationRange.MAX_RANGE) {
+            Bukkit.getLogger().warning("Entity activation ranges of world " + this.worldName + " above " + io.papermc.paper.entity.activation.ActivationRange.MAX_RANGE + " blocks are limited to " + io.papermc.paper.entity.activation.ActivationRange.MAX_RANGE + " blocks");
+        }
+        // Paper end - Single pass entity activation
     }
 
     public int playerTrackingRange = 128;
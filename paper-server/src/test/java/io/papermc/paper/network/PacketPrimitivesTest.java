@@ -0,0 +1,39 @@
+package io.papermc.paper.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.Utf8String;
+import net.minecraft.network.VarInt;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Normal
+public class PacketPrimitivesTest {
+
+    private static final int[] VAR_INTS = {
+        0, 1, 127, 128, 255, 16383, 16384, 2097151, 2097152, 268435455, 268435456, Integer.MAX_VALUE, -1, Integer.MIN_VALUE
+    };
+
+    @Test
+    public void testVarIntMatchesLoop() {
+        for (final int value : VAR_INTS) {
+            final ByteBuf expected = VarInt.writeOld(Unpooled.buffer(), value);
+            final ByteBuf actual = VarInt.write(Unpooled.buffer(), value);
+            assertEquals(expected, actual, "VarInt " + value);
+            assertEquals(VarInt.getByteSize(value), actual.readableBytes(), "VarInt size " + value);
+            assertEquals(value, VarInt.read(actual), "VarInt round trip " + value);
+        }
+    }
+
+    @Test
+    public void testUtf8RoundTrip() {
+        for (final String value : new String[] {"", "chunk", "éè中文", "😀", "a".repeat(200)}) {
+            final ByteBuf buffer = Unpooled.buffer();
+            Utf8String.write(buffer, value, 32767);
+            assertEquals(value, Utf8String.read(buffer, 32767));
+            assertEquals(0, buffer.readableBytes());
+        }
+    }
+}
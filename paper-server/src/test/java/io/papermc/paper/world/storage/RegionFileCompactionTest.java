@@ -0,0 +1,68 @@
+package io.papermc.paper.world.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RegionFileCompactionTest {
+
+    private static final int SECTOR = RegionFileCompaction.SECTOR_BYTES;
+
+    @TempDir
+    Path folder;
+
+    private static void writeChunk(final FileChannel channel, final int index, final int sector, final int sectors, final byte version, final byte fill) throws IOException {
+        final ByteBuffer data = ByteBuffer.allocate(sectors * SECTOR);
+        data.putInt(sectors * SECTOR - Integer.BYTES).put(version);
+        while (data.hasRemaining()) {
+            data.put(fill);
+        }
+        channel.write(data.flip(), (long)sector * SECTOR);
+        channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, (sector << 8) | sectors), (long)index * Integer.BYTES);
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        final Path file = this.folder.resolve("r.0.0.mca");
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2 * SECTOR), 0L);
+            // sectors 2-4 and 7-9 are free
+            writeChunk(channel, 0, 5, 2, (byte)2, (byte)1);
+            writeChunk(channel, 7, 10, 1, (byte)4, (byte)2);
+
+            assertEquals(6L * SECTOR, RegionFileCompaction.getWastedBytes(channel));
+            assertEquals(2, RegionFileCompaction.readCompressionVersion(channel, RegionFileCompaction.readOffsets(channel)[0]));
+            assertEquals(-1, RegionFileCompaction.readCompressionVersion(channel, RegionFileCompaction.readOffsets(channel)[1]));
+        }
+
+        final byte[] chunk0 = readSectors(file, 5, 2);
+        final byte[] chunk7 = readSectors(file, 10, 1);
+
+        assertEquals(5L * SECTOR, RegionFileCompaction.compact(file));
+
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final int[] offsets = RegionFileCompaction.readOffsets(channel);
+            assertEquals((2 << 8) | 2, offsets[0]);
+            assertEquals((4 << 8) | 1, offsets[7]);
+            assertEquals(0L, RegionFileCompaction.getWastedBytes(channel));
+            assertEquals(4, RegionFileCompaction.readCompressionVersion(channel, offsets[7]));
+        }
+        assertArrayEquals(chunk0, readSectors(file, 2, 2));
+        assertArrayEquals(chunk7, readSectors(file, 4, 1));
+    }
+
+    private static byte[] readSectors(final Path file, final int sector, final int sectors) throws IOException {
+        final byte[] bytes = Files.readAllBytes(file);
+        final byte[] ret = new byte[sectors * SECTOR];
+        System.arraycopy(bytes, sector * SECTOR, ret, 0, ret.length);
+        return ret;
+    }
+}
@@ -0,0 +1,49 @@
+package io.papermc.paper.world.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Normal
+public class ZstdRegionCompressionTest {
+
+    @TempDir
+    Path worldFolder;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final RegionFileVersion version = ZstdRegionCompression.forFolder(this.worldFolder.resolve("region")).version();
+        assertEquals(CustomRegionCompression.VERSION_ID, version.getId());
+
+        final byte[] data = "chunk data ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = version.wrap(compressed)) {
+            out.write(data);
+        }
+
+        // reads go through the registered custom version, not the one used for writing
+        try (InputStream in = RegionFileVersion.fromId(version.getId()).wrap(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testUnknownAlgorithm() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        CustomRegionCompression.writeHeader("paper:unknown", compressed);
+
+        assertThrows(IOException.class, () -> RegionFileVersion.fromId(CustomRegionCompression.VERSION_ID).wrap(new ByteArrayInputStream(compressed.toByteArray())));
+    }
+}